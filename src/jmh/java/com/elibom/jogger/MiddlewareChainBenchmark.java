@@ -0,0 +1,74 @@
+package com.elibom.jogger;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.elibom.jogger.http.Request;
+import com.elibom.jogger.http.Response;
+import com.elibom.jogger.test.MockRequest;
+import com.elibom.jogger.test.MockResponse;
+
+/**
+ * Measures the cost of dispatching a request through {@link Jogger#handle(Request, Response)} with middlewares that
+ * only call the next one in the chain, except the last one that handles the request.
+ *
+ * @author German Escobar
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-DJOGGER_ENV=prod")
+public class MiddlewareChainBenchmark {
+
+	@Param({ "1", "5", "20" })
+	private int middlewares;
+
+	private Jogger jogger;
+
+	private Request request;
+
+	private Response response;
+
+	@Setup
+	public void setup() throws Exception {
+		Middleware[] list = new Middleware[middlewares];
+		for (int i=0; i < middlewares - 1; i++) {
+			list[i] = new Middleware() {
+				@Override
+				public void handle(Request request, Response response, MiddlewareChain chain) throws Exception {
+					chain.next();
+				}
+			};
+		}
+
+		// the last middleware handles the request, otherwise the chain ends with a 404
+		list[middlewares - 1] = new Middleware() {
+			@Override
+			public void handle(Request request, Response response, MiddlewareChain chain) throws Exception {}
+		};
+
+		jogger = new Jogger(list);
+		request = new MockRequest(jogger, "GET", "http://localhost/");
+		response = new MockResponse(null);
+	}
+
+	@Benchmark
+	public Response dispatch() throws Exception {
+		jogger.handle(request, response);
+		return response;
+	}
+
+}
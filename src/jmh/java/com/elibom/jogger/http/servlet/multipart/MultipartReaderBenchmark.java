@@ -0,0 +1,154 @@
+package com.elibom.jogger.http.servlet.multipart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast {@link MultipartReader} reads multipart bodies: many small fields, a large file and a field with
+ * several files in a nested <code>multipart/mixed</code> body. Parts are read the same way {@link Multipart} does it
+ * but the data is discarded, so only the boundary search is measured.
+ *
+ * @author German Escobar
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultipartReaderBenchmark {
+
+	private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+	// the reader only accepts nested boundaries with the same length
+	private static final String MIXED_BOUNDARY = "----NestedMixedBoundaryAaB03xAaB03xAa";
+
+	@Param({ "fields", "file", "mixed" })
+	private String body;
+
+	private byte[] data;
+
+	private long partsSize;
+
+	@Setup
+	public void setup() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(out, "preamble\r\n");
+
+		if ("fields".equals(body)) {
+			for (int i=0; i < 200; i++) {
+				write(out, "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"field" + i + "\"\r\n\r\n");
+				writePart(out, ("value of the field number " + i).getBytes("ISO-8859-1"));
+			}
+		} else if ("file".equals(body)) {
+			write(out, "--" + BOUNDARY + "\r\n");
+			write(out, "Content-Disposition: form-data; name=\"file\"; filename=\"file.bin\"\r\n");
+			write(out, "Content-Type: application/octet-stream\r\n\r\n");
+			writePart(out, random(8 * 1024 * 1024));
+		} else {
+			write(out, "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"files\"\r\n");
+			write(out, "Content-Type: multipart/mixed; boundary=" + MIXED_BOUNDARY + "\r\n\r\n");
+			for (int i=0; i < 4; i++) {
+				write(out, "--" + MIXED_BOUNDARY + "\r\n");
+				write(out, "Content-Disposition: attachment; filename=\"file" + i + ".bin\"\r\n\r\n");
+				writePart(out, random(256 * 1024));
+			}
+			write(out, "--" + MIXED_BOUNDARY + "--\r\n");
+		}
+		write(out, "--" + BOUNDARY + "--\r\n");
+
+		data = out.toByteArray();
+
+		long read = read();
+		if (read != partsSize) {
+			throw new IllegalStateException("expected " + partsSize + " bytes but " + read + " were read");
+		}
+	}
+
+	@Benchmark
+	public long read() throws IOException {
+		MultipartReader reader = new MultipartReader(new ByteArrayInputStream(data), BOUNDARY.getBytes("ISO-8859-1"));
+		CountingOutputStream output = new CountingOutputStream();
+
+		boolean nested = false;
+		boolean nextPart = reader.skipPreamble();
+		while (true) {
+			if (!nextPart) {
+				if (!nested) {
+					break;
+				}
+
+				// the nested multipart/mixed body terminated, continue with the outer one
+				reader.setBoundary(BOUNDARY.getBytes("ISO-8859-1"));
+				nested = false;
+				nextPart = reader.readBoundary();
+				continue;
+			}
+
+			String headers = reader.readHeaders();
+			if (!nested && headers.contains("multipart/mixed")) {
+				reader.setBoundary(MIXED_BOUNDARY.getBytes("ISO-8859-1"));
+				nested = true;
+				nextPart = reader.skipPreamble();
+				continue;
+			}
+
+			reader.readBodyData(output);
+			nextPart = reader.readBoundary();
+		}
+
+		return output.count;
+	}
+
+	private void write(OutputStream out, String s) throws IOException {
+		out.write(s.getBytes("ISO-8859-1"));
+	}
+
+	private void writePart(OutputStream out, byte[] content) throws IOException {
+		out.write(content);
+		write(out, "\r\n");
+		partsSize += content.length;
+	}
+
+	private byte[] random(int size) {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Discards the bytes written to it, keeping only their count.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.elibom.jogger.middleware.router;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.elibom.jogger.http.Request;
+import com.elibom.jogger.http.Response;
+import com.elibom.jogger.middleware.router.Route.HttpMethod;
+import com.elibom.jogger.test.MockResponse;
+
+/**
+ * Compares the ways a route can call its action: a {@link RouteHandler}, called directly through the interface, and a
+ * controller method, called using reflection. The plain <code>Method.invoke</code> call is the baseline; controller
+ * routes are expected to be as fast as it is.
+ *
+ * @author German Escobar
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteInvokeBenchmark {
+
+	public static class Controller {
+
+		private int count;
+
+		public void index(Request request, Response response) {
+			count++;
+		}
+
+	}
+
+	private Controller controller;
+
+	private Method action;
+
+	private Route handlerRoute;
+
+	private Route controllerRoute;
+
+	private Response response;
+
+	@Setup
+	public void setup() throws Exception {
+		controller = new Controller();
+		action = Controller.class.getMethod("index", Request.class, Response.class);
+
+		RouteHandler handler = new RouteHandler() {
+			@Override
+			public void handle(Request request, Response response) {
+				controller.count++;
+			}
+		};
+		handlerRoute = new Route(HttpMethod.GET, "/", handler,
+				RouteHandler.class.getMethod("handle", Request.class, Response.class));
+		controllerRoute = new Route(HttpMethod.GET, "/", controller, action);
+
+		response = new MockResponse(null);
+	}
+
+	@Benchmark
+	public Object routeHandler() throws Exception {
+		return handlerRoute.invoke(null, response);
+	}
+
+	@Benchmark
+	public Object controller() throws Exception {
+		return controllerRoute.invoke(null, response);
+	}
+
+	@Benchmark
+	public Object reflection() throws Exception {
+		return action.invoke(controller, null, response);
+	}
+
+}
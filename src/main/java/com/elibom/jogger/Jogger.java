@@ -1,10 +1,11 @@
 package com.elibom.jogger;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.concurrent.TimeoutException;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -12,10 +13,12 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 import com.elibom.jogger.exception.NotFoundException;
+import com.elibom.jogger.http.Deferred;
 import com.elibom.jogger.http.Request;
 import com.elibom.jogger.http.Response;
 import com.elibom.jogger.http.servlet.ServletRequest;
 import com.elibom.jogger.http.servlet.ServletResponse;
+import com.elibom.jogger.http.servlet.multipart.Multipart;
 import com.elibom.jogger.template.FreemarkerTemplateEngine;
 import com.elibom.jogger.template.TemplateEngine;
 import com.elibom.jogger.util.Preconditions;
@@ -29,6 +32,8 @@ public class Jogger {
 
 	private static final int DEFAULT_PORT = 5000;
 
+	private static final long DEFAULT_ASYNC_TIMEOUT = 30000;
+
 	/**
 	 * The Jetty server instance.
 	 */
@@ -52,6 +57,22 @@ public class Jogger {
 	private TemplateEngine templateEngine = new FreemarkerTemplateEngine();
 	
 	private ExceptionHandler exceptionHandler = new DefaultExceptionHandler();
+
+	/**
+	 * Used to parse the multipart/form-data of the requests, it holds the upload limits.
+	 */
+	private Multipart multipart = new Multipart();
+
+	/**
+	 * The maximum size (in bytes) of the body of a request read with {@link Request#getBody()}, -1 if unlimited.
+	 */
+	private long maxBodySize = -1;
+
+	/**
+	 * The time (in milliseconds) an asynchronous request waits for its {@link Deferred} before failing, 0 or less if
+	 * it waits forever.
+	 */
+	private long asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
 	
 	/**
 	 * Constructor. Initializes a new instance without middlewares.
@@ -98,51 +119,65 @@ public class Jogger {
 	}
 	
 	/**
-	 * Handles an HTTP request by delgating the call to the middlewares.
+	 * Handles an HTTP request by delgating the call to the middlewares. If the request becomes asynchronous (see
+	 * {@link Request#startAsync(Deferred)}), this method returns before the response is completed and the exception
+	 * handler is called when the {@link Deferred} fails.
 	 * 
 	 * @param request the Jogger HTTP request.
 	 * @param response the Jogger HTTP response.
 	 * @throws Exception
 	 */
-	public void handle(Request request, Response response) throws Exception {
+	public void handle(final Request request, final Response response) throws Exception {
+		dispatch(request, response);
+
+		Deferred deferred = request.getDeferred();
+		if (deferred != null) {
+			deferred.addListener(new Deferred.Listener() {
+				@Override
+				public void onComplete(Exception failure) throws Exception {
+					handleFailure(failure, request, response);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Helper method. Calls the middlewares handling the exceptions they throw. If the request is already asynchronous,
+	 * the exception fails the {@link Deferred} instead, so it is handled when the listeners are added.
+	 */
+	private void dispatch(Request request, Response response) throws Exception {
 		if (Environment.isDevelopment()) {
 			this.middlewares = this.middlewareFactory.create();
 		}
 		
 		try {
-			handle(request, response, new ArrayList<Middleware>(Arrays.asList(middlewares)));
+			new Chain(middlewares, request, response).next();
 		} catch (Exception e) {
-			if (exceptionHandler != null) {
-				exceptionHandler.handle(e, request, response);
-			} else {
-				throw e;
+			Deferred deferred = request.getDeferred();
+			if (deferred != null && deferred.fail(e)) {
+				return;
 			}
+
+			handleFailure(e, request, response);
 		}
 	}
-	
+
 	/**
-	 * Helper method. Creates a {@link MiddlewareChain} implementation to recursively call the middlewares.
-	 * 
-	 * @param request
-	 * @param response
-	 * @param middlewares
-	 * @throws Exception
+	 * Helper method. Handles the exception using the exception handler or throws it if there is no exception handler.
+	 *
+	 * @param failure the exception to be handled, nothing is done if null.
 	 */
-	private void handle(final Request request, final Response response, final List<Middleware> middlewares) throws Exception {
-		if (middlewares.isEmpty()) {
-			throw new NotFoundException();
+	private void handleFailure(Exception failure, Request request, Response response) throws Exception {
+		if (failure == null) {
+			return;
 		}
-		
-		Middleware current = middlewares.remove(0);
-		current.handle(request, response, new MiddlewareChain() {
-			@Override
-			public void next() throws Exception {
-				// recursive call
-				handle(request, response, middlewares);
-			}
-		});
-	}
 
+		if (exceptionHandler == null) {
+			throw failure;
+		}
+		exceptionHandler.handle(failure, request, response);
+	}
+	
 	/**
 	 * Starts the HTTP server listening in the configured <code>port</code> attribute.
 	 *
@@ -227,6 +262,88 @@ public class Jogger {
 		this.exceptionHandler = exceptionHandler;
 	}
 
+	/**
+	 * Retrieves the object used to parse the multipart/form-data of the requests, which can be used to configure the
+	 * upload limits and to retrieve the upload counters. For example:
+	 *
+	 * <pre><code>
+	 * 	jogger.getMultipart().setMaxRequestSize(10 * 1024 * 1024);
+	 * </code></pre>
+	 *
+	 * @return the {@link Multipart} object shared by all the requests.
+	 */
+	public Multipart getMultipart() {
+		return multipart;
+	}
+
+	public void setMultipart(Multipart multipart) {
+		Preconditions.notNull(multipart, "no multipart provided");
+		this.multipart = multipart;
+	}
+
+	public long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	/**
+	 * Sets the maximum size of the body of a request read with {@link Request#getBody()}. Bigger bodies are rejected
+	 * with a 413 status.
+	 *
+	 * @param maxBodySize the size in bytes or -1 if unlimited.
+	 */
+	public void setMaxBodySize(long maxBodySize) {
+		this.maxBodySize = maxBodySize;
+	}
+
+	public long getAsyncTimeout() {
+		return asyncTimeout;
+	}
+
+	/**
+	 * Sets the time an asynchronous request waits for its {@link Deferred}. When the time is over, the deferred fails
+	 * with a {@link TimeoutException}.
+	 *
+	 * @param asyncTimeout the time in milliseconds, 0 or less to wait forever.
+	 */
+	public void setAsyncTimeout(long asyncTimeout) {
+		this.asyncTimeout = asyncTimeout;
+	}
+
+	/**
+	 * A {@link MiddlewareChain} implementation that keeps an index to the next middleware that has to be called. Only one
+	 * instance is created per request and it is passed to every middleware.
+	 *
+	 * @author German Escobar
+	 */
+	private static class Chain implements MiddlewareChain {
+
+		private final Middleware[] middlewares;
+
+		private final Request request;
+
+		private final Response response;
+
+		private int index = 0;
+
+		public Chain(Middleware[] middlewares, Request request, Response response) {
+			this.middlewares = middlewares;
+			this.request = request;
+			this.response = response;
+		}
+
+		@Override
+		public void next() throws Exception {
+			if (index == middlewares.length) {
+				throw new NotFoundException();
+			}
+
+			// increase the index before calling the middleware as it will eventually call this method again
+			Middleware current = middlewares[index++];
+			current.handle(request, response, this);
+		}
+
+	}
+
 	/**
 	 * The Jetty handler that will handle HTTP requests.
 	 *
@@ -239,15 +356,70 @@ public class Jogger {
 				HttpServletResponse servletResponse) throws IOException, ServletException {
 			try {
 				// wrap Jetty's request and response in Jogger objects
-				Request request = new ServletRequest(servletRequest);
-				Response response = new ServletResponse(servletResponse, templateEngine);
+				ServletRequest request = new ServletRequest(servletRequest, multipart);
+				request.setMaxBodySize(maxBodySize);
+				ServletResponse response = new ServletResponse(servletResponse, templateEngine);
 				
-				Jogger.this.handle(request, response);
+				dispatch(request, response);
+
+				// the request was suspended when it became asynchronous, now that the middlewares returned we can wait
+				if (request.getDeferred() != null) {
+					complete(request, response);
+				}
 			} catch (Exception e) {
 				throw new ServletException(e);
 			} finally {
 				baseRequest.setHandled(true);
 			}
 		}
+
+		/**
+		 * Helper method. Completes the suspended request when its {@link Deferred} is done, calling the exception
+		 * handler if it failed. The deferred fails if the timeout expires first.
+		 *
+		 * @param request the asynchronous request.
+		 * @param response the response of the request, it is closed when the request is completed.
+		 */
+		private void complete(final ServletRequest request, final ServletResponse response) {
+			final Deferred deferred = request.getDeferred();
+
+			final AsyncContext asyncContext = request.getAsyncContext();
+			asyncContext.setTimeout(asyncTimeout > 0 ? asyncTimeout : 0);
+			asyncContext.addListener(new AsyncListener() {
+
+				@Override
+				public void onTimeout(AsyncEvent event) throws IOException {
+					deferred.fail(new TimeoutException("The request timed out after " + asyncTimeout + " ms"));
+				}
+
+				@Override
+				public void onStartAsync(AsyncEvent event) throws IOException {}
+
+				@Override
+				public void onError(AsyncEvent event) throws IOException {}
+
+				@Override
+				public void onComplete(AsyncEvent event) throws IOException {}
+
+			});
+
+			deferred.addListener(new Deferred.Listener() {
+				@Override
+				public void onComplete(Exception failure) {
+					try {
+						handleFailure(failure, request, response);
+					} catch (Exception e) {
+						// there is no exception handler and nobody to throw the exception to
+						if (!response.isWritten()) {
+							response.status(Response.INTERNAL_ERROR);
+						}
+					} finally {
+						// the servlet response is recycled after the request is completed
+						response.close();
+						asyncContext.complete();
+					}
+				}
+			});
+		}
 	}
 }
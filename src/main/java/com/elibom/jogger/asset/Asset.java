@@ -1,19 +1,43 @@
 package com.elibom.jogger.asset;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.elibom.jogger.http.HttpException;
 
 /**
- * Represents a static asset resource.
+ * Represents a static asset resource. An asset is created either from an input stream or from a file; assets backed by
+ * a file allow {@link com.elibom.jogger.http.Response} implementations to send the file without copying it through the
+ * heap. A file asset can also hold a buffer with the content of the file (e.g. a memory mapped buffer) that is shared by
+ * all the requests.
  *
  * @author German Escobar
  */
 public class Asset {
 
 	/**
-	 * The input stream of the asset.
+	 * The input stream of the asset, null if the asset is backed by a file.
 	 */
 	private final InputStream inputStream;
 
+	/**
+	 * The file of the asset, null if the asset is not backed by a file.
+	 */
+	private final File file;
+
+	/**
+	 * The content of the asset, null if the asset has no buffer. This buffer is never read directly, we use duplicates.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The position of the first byte of the asset in the file, 0 if the asset is not backed by a file.
+	 */
+	private final long offset;
+
 	/**
 	 * The name of the asset.
 	 */
@@ -34,15 +58,52 @@ public class Asset {
 	 */
 	private final String contentType;
 
+	/**
+	 * The content encoding of the asset (e.g. "gzip"), null if the content is not encoded.
+	 */
+	private final String contentEncoding;
+
 
     public Asset(InputStream inputStream, String name, String contentType, long length) {
         this(inputStream, name, contentType, length, 0);
     }
 
 	public Asset(InputStream inputStream, String name, String contentType, long length, long lastModified) {
+		this(inputStream, null, null, 0, name, contentType, null, length, lastModified);
+	}
+
+	/**
+	 * Constructor. Creates an asset backed by a file; the name, length and last modified date are taken from the file.
+	 *
+	 * @param file the file of the asset.
+	 * @param contentType the content type of the asset.
+	 */
+	public Asset(File file, String contentType) {
+		this(null, file, null, 0, file.getName(), contentType, null, file.length(), file.lastModified());
+	}
+
+	/**
+	 * Constructor. Creates an asset backed by a file whose content is in the <code>buffer</code> (e.g. a memory mapped
+	 * buffer of the file). The content is read from the buffer instead of the file.
+	 *
+	 * @param file the file of the asset.
+	 * @param buffer the content of the file, from its position to its limit.
+	 * @param contentType the content type of the asset.
+	 * @param lastModified the epoch timestamp when the file was last modified.
+	 */
+	public Asset(File file, ByteBuffer buffer, String contentType, long lastModified) {
+		this(null, file, buffer.duplicate(), 0, file.getName(), contentType, null, buffer.remaining(), lastModified);
+	}
+
+	private Asset(InputStream inputStream, File file, ByteBuffer buffer, long offset, String name, String contentType,
+			String contentEncoding, long length, long lastModified) {
 		this.inputStream = inputStream;
+		this.file = file;
+		this.buffer = buffer;
+		this.offset = offset;
 		this.name = name;
 		this.contentType = contentType;
+		this.contentEncoding = contentEncoding;
 		this.length = length;
 		this.lastModified = lastModified;
 	}
@@ -55,8 +116,118 @@ public class Asset {
 		return contentType;
 	}
 
-	public InputStream getInputStream() {
-		return inputStream;
+	/**
+	 * Retrieves the input stream of the asset. If the asset is backed by a file, a new input stream is opened each time
+	 * this method is called.
+	 *
+	 * @return an InputStream object.
+	 * @throws HttpException if the file of the asset can't be opened.
+	 */
+	public InputStream getInputStream() throws HttpException {
+		if (buffer != null) {
+			return new ByteBufferInputStream(buffer.duplicate());
+		}
+
+		if (inputStream != null || file == null) {
+			return inputStream;
+		}
+
+		FileInputStream fis = null;
+		try {
+			fis = new FileInputStream(file);
+			if (offset == 0 && length == file.length()) {
+				return fis;
+			}
+
+			fis.getChannel().position(offset);
+			return new RangeInputStream(fis, 0, length);
+		} catch (IOException e) {
+			if (fis != null) {
+				try {
+					fis.close();
+				} catch (IOException ce) {}
+			}
+			throw new HttpException(e);
+		}
+	}
+
+	/**
+	 * Creates an asset with a range of the bytes of this asset. Assets backed by a file seek to the position of the range
+	 * when the input stream is opened. Otherwise, the returned asset reads the input stream of this asset (skipping the
+	 * bytes that are before the range), so this asset shouldn't be used after calling this method.
+	 *
+	 * @param offset the position of the first byte of the range.
+	 * @param length the number of bytes of the range.
+	 *
+	 * @return a new Asset object.
+	 * @throws IllegalArgumentException if the range is not within the asset.
+	 */
+	public Asset slice(long offset, long length) {
+		if (offset < 0 || length < 0) {
+			throw new IllegalArgumentException("offset and length can't be negative");
+		}
+		if (this.length >= 0 && offset + length > this.length) {
+			throw new IllegalArgumentException("range exceeds the length of the asset");
+		}
+
+		if (buffer != null) {
+			ByteBuffer slice = buffer.duplicate();
+			slice.position(slice.position() + (int) offset);
+			slice.limit(slice.position() + (int) length);
+			return new Asset(null, file, slice.slice(), this.offset + offset, name, contentType, contentEncoding, length,
+					lastModified);
+		}
+
+		if (file != null) {
+			return new Asset(null, file, null, this.offset + offset, name, contentType, contentEncoding, length,
+					lastModified);
+		}
+
+		return new Asset(new RangeInputStream(inputStream, offset, length), null, null, 0, name, contentType,
+				contentEncoding, length, lastModified);
+	}
+
+	/**
+	 * Creates an asset with the name, content type and last modified date of this asset, but with the content of the
+	 * <code>encoded</code> asset (e.g. a compressed version of this asset).
+	 *
+	 * @param contentEncoding the encoding of the content (e.g. "gzip").
+	 * @param encoded the asset from which we take the content.
+	 *
+	 * @return a new Asset object.
+	 */
+	public Asset withEncoding(String contentEncoding, Asset encoded) {
+		return new Asset(encoded.inputStream, encoded.file, encoded.buffer, encoded.offset, name, contentType,
+				contentEncoding, encoded.length, lastModified);
+	}
+
+	/**
+	 * @return the file of the asset or null if the asset is not backed by a file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return a read-only buffer with the content of the asset (independent of the buffers returned to other callers) or
+	 * null if the asset has no buffer.
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer == null ? null : buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return the position of the first byte of the asset in its file, 0 if the asset is not backed by a file.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the content encoding of the asset (e.g. "gzip") or null if the content is not encoded.
+	 */
+	public String getContentEncoding() {
+		return contentEncoding;
 	}
 
 	public long getLength() {
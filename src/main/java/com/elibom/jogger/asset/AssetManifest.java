@@ -0,0 +1,192 @@
+package com.elibom.jogger.asset;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.elibom.jogger.http.HttpException;
+import com.elibom.jogger.util.Preconditions;
+
+/**
+ * Maps the paths of the files in a directory to fingerprinted paths that include a hash of their content (e.g.
+ * "js/app.js" to "js/app.3f9a1c2b.js"). The content of a fingerprinted path never changes, so it can be cached forever
+ * by the clients. For example:
+ *
+ * <pre><code>
+ * 	AssetManifest manifest = new AssetManifest(new File("public"));
+ * 	String url = "/public/" + manifest.getFingerprintedPath("js/app.js");
+ * </code></pre>
+ *
+ * The manifest is built when this object is created, and it is immutable.
+ *
+ * @author German Escobar
+ */
+public class AssetManifest {
+
+	private static final int HASH_LENGTH = 8;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * The fingerprinted path of each file.
+	 */
+	private final Map<String,String> fingerprintedPaths = new HashMap<String,String>();
+
+	/**
+	 * The file information of each fingerprinted path.
+	 */
+	private final Map<String,Entry> entries = new HashMap<String,Entry>();
+
+	/**
+	 * Constructor. Builds the manifest with the files of the directory of the <code>assetLoader</code>.
+	 *
+	 * @param assetLoader the loader from which we take the directory.
+	 */
+	public AssetManifest(FileAssetLoader assetLoader) {
+		this(assetLoader.getParent());
+	}
+
+	/**
+	 * Constructor. Builds the manifest with the files of the <code>directory</code> (and its subdirectories).
+	 *
+	 * @param directory the directory with the files.
+	 * @throws HttpException if there is a problem reading the files.
+	 */
+	public AssetManifest(File directory) throws HttpException {
+		Preconditions.notNull(directory, "no directory provided");
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			add(directory, "", digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new HttpException(e);
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+	}
+
+	private void add(File directory, String basePath, MessageDigest digest) throws IOException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			String path = basePath + file.getName();
+			if (file.isDirectory()) {
+				add(file, path + "/", digest);
+			} else if (file.isFile()) {
+				String fingerprintedPath = fingerprint(path, hash(file, digest));
+				fingerprintedPaths.put(path, fingerprintedPath);
+				entries.put(fingerprintedPath, new Entry(path, file.lastModified(), file.length()));
+			}
+		}
+	}
+
+	/**
+	 * Helper method. Adds the hash before the extension of the file name (e.g. "js/app.js" is "js/app.3f9a1c2b.js").
+	 */
+	private static String fingerprint(String path, String hash) {
+		int slash = path.lastIndexOf('/');
+		int dot = path.lastIndexOf('.');
+		if (dot <= slash + 1) {
+			return path + "." + hash;
+		}
+
+		return path.substring(0, dot) + "." + hash + path.substring(dot);
+	}
+
+	private static String hash(File file, MessageDigest digest) throws IOException {
+		digest.reset();
+
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int length;
+			while ((length = inputStream.read(buffer)) != -1) {
+				digest.update(buffer, 0, length);
+			}
+		} finally {
+			inputStream.close();
+		}
+
+		byte[] bytes = digest.digest();
+		char[] hex = new char[HASH_LENGTH];
+		for (int i=0; i < HASH_LENGTH / 2; i++) {
+			hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+
+		return new String(hex);
+	}
+
+	/**
+	 * Retrieves the fingerprinted path of a file.
+	 *
+	 * @param path the path of the file, relative to the directory of the manifest (e.g. "js/app.js").
+	 *
+	 * @return the fingerprinted path (e.g. "js/app.3f9a1c2b.js") or null if the file is not in the manifest.
+	 */
+	public String getFingerprintedPath(String path) {
+		return fingerprintedPaths.get(path);
+	}
+
+	/**
+	 * Retrieves the path of the file of a fingerprinted path.
+	 *
+	 * @param fingerprintedPath the fingerprinted path (e.g. "js/app.3f9a1c2b.js").
+	 *
+	 * @return the path of the file (e.g. "js/app.js") or null if the path is not a fingerprinted path of this manifest.
+	 */
+	public String getPath(String fingerprintedPath) {
+		Entry entry = entries.get(fingerprintedPath);
+		return entry == null ? null : entry.path;
+	}
+
+	/**
+	 * Checks if an asset still has the content the fingerprinted path was created with (i.e. its last modified date and
+	 * length haven't changed since the manifest was built).
+	 *
+	 * @param fingerprintedPath the fingerprinted path.
+	 * @param asset the asset loaded from the path of the file.
+	 *
+	 * @return true if the asset hasn't changed, false otherwise.
+	 */
+	public boolean isCurrent(String fingerprintedPath, Asset asset) {
+		Entry entry = entries.get(fingerprintedPath);
+		return entry != null && entry.lastModified == asset.getLastModified() && entry.length == asset.getLength();
+	}
+
+	/**
+	 * @return an unmodifiable map with the paths of the files as keys and the fingerprinted paths as values.
+	 */
+	public Map<String,String> getFingerprintedPaths() {
+		return Collections.unmodifiableMap(fingerprintedPaths);
+	}
+
+	/**
+	 * The file of a fingerprinted path.
+	 */
+	private static class Entry {
+
+		private final String path;
+
+		private final long lastModified;
+
+		private final long length;
+
+		Entry(String path, long lastModified, long length) {
+			this.path = path;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+	}
+
+}
@@ -0,0 +1,288 @@
+package com.elibom.jogger.asset;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.elibom.jogger.http.HttpException;
+import com.elibom.jogger.util.Preconditions;
+
+/**
+ * An {@link AssetLoader} implementation that keeps the contents of the assets retrieved from another {@link AssetLoader}
+ * in memory. For example:
+ *
+ * <pre><code>
+ * 	AssetLoader assetLoader = new CachingAssetLoader(new FileAssetLoader("public"));
+ * 	StaticMiddleware statik = new StaticMiddleware(assetLoader, "public");
+ * </code></pre>
+ *
+ * Keep in mind the following when using this class:
+ *
+ * <ul>
+ * 	<li>The total size of the cached assets is bounded by <code>maxSize</code>; when the limit is reached, the least
+ * 	recently used assets are evicted.</li>
+ * 	<li>Assets larger than <code>maxAssetSize</code> (or with an unknown length) are not cached, they are loaded from
+ * 	the underlying {@link AssetLoader} on each request.</li>
+ * 	<li>A cached asset is revalidated (i.e. loaded again to compare its last modified date and length) after
+ * 	<code>revalidateInterval</code> milliseconds. A negative interval disables revalidation.</li>
+ * </ul>
+ *
+ * @author German Escobar
+ */
+public class CachingAssetLoader implements AssetLoader {
+
+	private static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024;
+
+	private static final long DEFAULT_MAX_ASSET_SIZE = 1024 * 1024;
+
+	private static final long DEFAULT_REVALIDATE_INTERVAL = 2000;
+
+	/**
+	 * The loader from which we retrieve the assets.
+	 */
+	private final AssetLoader assetLoader;
+
+	/**
+	 * The maximum number of bytes that this loader will keep in memory.
+	 */
+	private volatile long maxSize = DEFAULT_MAX_SIZE;
+
+	/**
+	 * The maximum length of an asset that can be cached.
+	 */
+	private long maxAssetSize = DEFAULT_MAX_ASSET_SIZE;
+
+	/**
+	 * The number of milliseconds after which a cached asset is revalidated.
+	 */
+	private long revalidateInterval = DEFAULT_REVALIDATE_INTERVAL;
+
+	/**
+	 * The cached assets in access order (the first one is the least recently used).
+	 */
+	private final LinkedHashMap<String,CachedAsset> cache = new LinkedHashMap<String,CachedAsset>(16, 0.75f, true);
+
+	/**
+	 * The sum of the lengths of the cached assets.
+	 */
+	private long size = 0;
+
+	/**
+	 * Constructor. Initializes the object with the default limits.
+	 *
+	 * @param assetLoader the loader from which we are going to retrieve the assets.
+	 */
+	public CachingAssetLoader(AssetLoader assetLoader) {
+		Preconditions.notNull(assetLoader, "no assetLoader provided");
+		this.assetLoader = assetLoader;
+	}
+
+	/**
+	 * Constructor. Initializes the object with the specified maximum number of bytes to keep in memory.
+	 *
+	 * @param assetLoader the loader from which we are going to retrieve the assets.
+	 * @param maxSize the maximum number of bytes that will be kept in memory.
+	 */
+	public CachingAssetLoader(AssetLoader assetLoader, long maxSize) {
+		this(assetLoader);
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public Asset load(String uri) {
+		CachedAsset cached = get(uri);
+
+		long now = System.currentTimeMillis();
+		if (cached != null && (revalidateInterval < 0 || now - cached.validated < revalidateInterval)) {
+			return cached.toAsset();
+		}
+
+		Asset asset = assetLoader.load(uri);
+		if (asset == null) {
+			remove(uri);
+			return null;
+		}
+
+		// the asset hasn't changed
+		if (cached != null && cached.lastModified == asset.getLastModified() && cached.bytes.length == asset.getLength()) {
+			release(asset);
+			cached.validated = now;
+			return cached.toAsset();
+		}
+
+		if (asset.getLength() < 0 || asset.getLength() > maxAssetSize || asset.getLength() > maxSize) {
+			remove(uri);
+			return asset;
+		}
+
+		byte[] bytes;
+		try {
+			bytes = read(asset);
+		} catch (IOException e) {
+			// the asset exists, so we don't want it to be served as not found
+			remove(uri);
+			throw new HttpException(e);
+		}
+
+		cached = new CachedAsset(bytes, asset.getName(), asset.getContentType(), asset.getLastModified(), now);
+		put(uri, cached);
+
+		return cached.toAsset();
+	}
+
+	private synchronized CachedAsset get(String uri) {
+		return cache.get(uri);
+	}
+
+	private synchronized void put(String uri, CachedAsset cached) {
+		CachedAsset old = cache.put(uri, cached);
+		if (old != null) {
+			size -= old.bytes.length;
+		}
+		size += cached.bytes.length;
+
+		evict();
+	}
+
+	/**
+	 * Helper method. Evicts the least recently used assets until the size is within the limit.
+	 */
+	private synchronized void evict() {
+		Iterator<Map.Entry<String,CachedAsset>> iterator = cache.entrySet().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			Map.Entry<String,CachedAsset> entry = iterator.next();
+			size -= entry.getValue().bytes.length;
+			iterator.remove();
+		}
+	}
+
+	private synchronized void remove(String uri) {
+		CachedAsset old = cache.remove(uri);
+		if (old != null) {
+			size -= old.bytes.length;
+		}
+	}
+
+	/**
+	 * Removes all the cached assets.
+	 */
+	public synchronized void clear() {
+		cache.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return the number of bytes currently held in memory.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Helper method. Reads the contents of the asset closing its input stream.
+	 */
+	private byte[] read(Asset asset) throws IOException {
+		InputStream inputStream = asset.getInputStream();
+		try {
+			byte[] bytes = new byte[(int) asset.getLength()];
+
+			int offset = 0;
+			while (offset < bytes.length) {
+				int read = inputStream.read(bytes, offset, bytes.length - offset);
+				if (read == -1) {
+					throw new IOException("Unexpected end of asset " + asset.getName());
+				}
+				offset += read;
+			}
+
+			return bytes;
+		} finally {
+			close(inputStream);
+		}
+	}
+
+	/**
+	 * Helper method. Closes the input stream of an asset that we are not going to use. Assets backed by a file open the
+	 * input stream when it is requested, so there is nothing to close.
+	 */
+	private static void release(Asset asset) {
+		if (asset.getFile() == null) {
+			close(asset.getInputStream());
+		}
+	}
+
+	private static void close(InputStream inputStream) {
+		if (inputStream != null) {
+			try {
+				inputStream.close();
+			} catch (IOException e) {}
+		}
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Sets the maximum number of bytes that will be kept in memory, evicting the least recently used assets if the new
+	 * limit is lower than the current size.
+	 *
+	 * @param maxSize the maximum number of bytes.
+	 */
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+
+	public long getMaxAssetSize() {
+		return maxAssetSize;
+	}
+
+	public void setMaxAssetSize(long maxAssetSize) {
+		this.maxAssetSize = maxAssetSize;
+	}
+
+	public long getRevalidateInterval() {
+		return revalidateInterval;
+	}
+
+	public void setRevalidateInterval(long revalidateInterval) {
+		this.revalidateInterval = revalidateInterval;
+	}
+
+	/**
+	 * Holds the contents and information of a cached asset.
+	 */
+	private static class CachedAsset {
+
+		private final byte[] bytes;
+
+		private final String name;
+
+		private final String contentType;
+
+		private final long lastModified;
+
+		/**
+		 * The last time the asset was validated against the underlying loader.
+		 */
+		private volatile long validated;
+
+		public CachedAsset(byte[] bytes, String name, String contentType, long lastModified, long validated) {
+			this.bytes = bytes;
+			this.name = name;
+			this.contentType = contentType;
+			this.lastModified = lastModified;
+			this.validated = validated;
+		}
+
+		public Asset toAsset() {
+			return new Asset(new ByteArrayInputStream(bytes), name, contentType, bytes.length, lastModified);
+		}
+
+	}
+
+}
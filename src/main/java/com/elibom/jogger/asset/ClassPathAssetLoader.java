@@ -0,0 +1,242 @@
+package com.elibom.jogger.asset;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.elibom.jogger.http.HttpException;
+import com.elibom.jogger.util.Preconditions;
+
+/**
+ * An {@link AssetLoader} implementation that retrieves the assets from the classpath (i.e. from directories or JAR
+ * files). The resources under the <code>prefix</code> are indexed when this object is created, so loading an asset
+ * doesn't look up the classpath:
+ *
+ * <ul>
+ * 	<li>Resources in directories are loaded from the file system.</li>
+ * 	<li>Resources in JAR files that are smaller than 16 KB are kept in memory; bigger ones are read from the JAR
+ * 	entry.</li>
+ * </ul>
+ *
+ * If more than one classpath location has a resource with the same name, the first one (in the order of the class
+ * loader) is used. Resources added to the classpath after this object is created are not found.
+ *
+ * @author German Escobar
+ */
+public class ClassPathAssetLoader implements AssetLoader {
+
+	private static final String DEFAULT_PREFIX = "assets";
+
+	private static final String DEFAULT_CONTENT_TYPE = "text/plain";
+
+	/**
+	 * Resources in JAR files up to this size are kept in memory.
+	 */
+	private static final long MAX_IN_MEMORY_SIZE = 16 * 1024;
+
+	/**
+	 * The indexed resources by their name relative to the prefix (e.g. "css/app.css").
+	 */
+	private final Map<String,Entry> entries;
+
+	/**
+	 * Constructor. Indexes the resources under the default prefix ("assets").
+	 */
+	public ClassPathAssetLoader() {
+		this(DEFAULT_PREFIX);
+	}
+
+	/**
+	 * Constructor. Indexes the resources under the <code>prefix</code> using the class loader of this class.
+	 *
+	 * @param prefix the classpath prefix of the resources (e.g. "public" or "com/example/assets").
+	 */
+	public ClassPathAssetLoader(String prefix) {
+		this(prefix, ClassPathAssetLoader.class.getClassLoader());
+	}
+
+	/**
+	 * Constructor. Indexes the resources under the <code>prefix</code> using the <code>classLoader</code>.
+	 *
+	 * @param prefix the classpath prefix of the resources (e.g. "public" or "com/example/assets").
+	 * @param classLoader the class loader from which we retrieve the resources.
+	 * @throws HttpException if there is a problem reading the classpath.
+	 */
+	public ClassPathAssetLoader(String prefix, ClassLoader classLoader) throws HttpException {
+		Preconditions.notEmpty(prefix, "no prefix provided");
+		Preconditions.notNull(classLoader, "no classLoader provided");
+
+		String fixedPrefix = prefix.startsWith("/") ? prefix.substring(1) : prefix;
+		fixedPrefix = fixedPrefix.endsWith("/") ? fixedPrefix : fixedPrefix + "/";
+
+		Map<String,Entry> index = new HashMap<String,Entry>();
+		try {
+			Enumeration<URL> urls = classLoader.getResources(fixedPrefix);
+			while (urls.hasMoreElements()) {
+				URL url = urls.nextElement();
+				if ("file".equals(url.getProtocol())) {
+					indexDirectory(index, new File(url.toURI()), "");
+				} else if ("jar".equals(url.getProtocol())) {
+					indexJar(index, url, fixedPrefix);
+				}
+			}
+		} catch (IOException e) {
+			throw new HttpException(e);
+		} catch (URISyntaxException e) {
+			throw new HttpException(e);
+		}
+
+		this.entries = Collections.unmodifiableMap(index);
+	}
+
+	private void indexDirectory(Map<String,Entry> index, File directory, String basePath) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			String name = basePath + file.getName();
+			if (file.isDirectory()) {
+				indexDirectory(index, file, name + "/");
+			} else if (file.isFile() && !index.containsKey(name)) {
+				index.put(name, new Entry(file, null, null, ContentTypes.get(file.getName(), DEFAULT_CONTENT_TYPE),
+						file.length(), file.lastModified()));
+			}
+		}
+	}
+
+	private void indexJar(Map<String,Entry> index, URL url, String prefix) throws IOException {
+		URLConnection connection = url.openConnection();
+		if (!(connection instanceof JarURLConnection)) {
+			return;
+		}
+
+		JarFile jarFile = ((JarURLConnection) connection).getJarFile();
+
+		Enumeration<JarEntry> jarEntries = jarFile.entries();
+		while (jarEntries.hasMoreElements()) {
+			JarEntry jarEntry = jarEntries.nextElement();
+			String entryName = jarEntry.getName();
+			if (jarEntry.isDirectory() || !entryName.startsWith(prefix)) {
+				continue;
+			}
+
+			String name = entryName.substring(prefix.length());
+			if (name.length() == 0 || index.containsKey(name)) {
+				continue;
+			}
+
+			String contentType = ContentTypes.get(name, DEFAULT_CONTENT_TYPE);
+			byte[] bytes = null;
+			if (jarEntry.getSize() >= 0 && jarEntry.getSize() <= MAX_IN_MEMORY_SIZE) {
+				bytes = read(jarFile, jarEntry);
+			}
+
+			index.put(name, new Entry(null, jarFile, bytes == null ? jarEntry : null, bytes, contentType,
+					jarEntry.getSize(), jarEntry.getTime()));
+		}
+	}
+
+	private static byte[] read(JarFile jarFile, JarEntry jarEntry) throws IOException {
+		InputStream inputStream = jarFile.getInputStream(jarEntry);
+		try {
+			byte[] bytes = new byte[(int) jarEntry.getSize()];
+
+			int offset = 0;
+			while (offset < bytes.length) {
+				int read = inputStream.read(bytes, offset, bytes.length - offset);
+				if (read == -1) {
+					throw new IOException("Unexpected end of entry " + jarEntry.getName());
+				}
+				offset += read;
+			}
+
+			return bytes;
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	@Override
+	public Asset load(String uri) throws HttpException {
+		String name = uri.startsWith("/") ? uri.substring(1) : uri;
+
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.file != null) {
+			return new Asset(entry.file, entry.contentType);
+		}
+
+		String fileName = name.substring(name.lastIndexOf('/') + 1);
+		if (entry.bytes != null) {
+			return new Asset(new ByteArrayInputStream(entry.bytes), fileName, entry.contentType, entry.length,
+					entry.lastModified);
+		}
+
+		try {
+			return new Asset(entry.jarFile.getInputStream(entry.jarEntry), fileName, entry.contentType, entry.length,
+					entry.lastModified);
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+	}
+
+	/**
+	 * @return the number of indexed resources.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * An indexed resource. Only one of <code>file</code>, <code>bytes</code> or <code>jarEntry</code> is not null.
+	 */
+	private static class Entry {
+
+		private final File file;
+
+		private final JarFile jarFile;
+
+		private final JarEntry jarEntry;
+
+		private final byte[] bytes;
+
+		private final String contentType;
+
+		private final long length;
+
+		private final long lastModified;
+
+		Entry(File file, JarFile jarFile, JarEntry jarEntry, String contentType, long length, long lastModified) {
+			this(file, jarFile, jarEntry, null, contentType, length, lastModified);
+		}
+
+		Entry(File file, JarFile jarFile, JarEntry jarEntry, byte[] bytes, String contentType, long length,
+				long lastModified) {
+			this.file = file;
+			this.jarFile = jarFile;
+			this.jarEntry = jarEntry;
+			this.bytes = bytes;
+			this.contentType = contentType;
+			this.length = length;
+			this.lastModified = lastModified;
+		}
+
+	}
+
+}
@@ -0,0 +1,179 @@
+package com.elibom.jogger.asset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import com.elibom.jogger.util.Preconditions;
+
+/**
+ * Resolves the content type of a file from its extension. The table is built once, from the MIME types that come with
+ * Jetty plus some additions (e.g. "json", "woff2"), so resolving a content type is a map lookup. The content types of
+ * text files include the default charset (e.g. "text/css; charset=UTF-8").
+ *
+ * The table can be modified with {@link #register(String, String)} and {@link #setDefaultCharset(String)}, usually when
+ * the application starts.
+ *
+ * @author German Escobar
+ */
+public final class ContentTypes {
+
+	private static final String JETTY_MIME_TYPES = "org/eclipse/jetty/http/mime.properties";
+
+	private static final String DEFAULT_CHARSET = "UTF-8";
+
+	/**
+	 * The content types of each extension without the charset: Jetty's, ours and the ones registered by the user.
+	 */
+	private static final Map<String,String> contentTypes = new HashMap<String,String>();
+
+	private static String defaultCharset = DEFAULT_CHARSET;
+
+	/**
+	 * The content types of each extension with the charset. The map is never modified, it is replaced with a new one
+	 * when the table changes.
+	 */
+	private static volatile Map<String,String> table;
+
+	static {
+		loadJettyMimeTypes();
+
+		contentTypes.put("js", "application/javascript");
+		contentTypes.put("mjs", "application/javascript");
+		contentTypes.put("json", "application/json");
+		contentTypes.put("map", "application/json");
+		contentTypes.put("webmanifest", "application/manifest+json");
+		contentTypes.put("wasm", "application/wasm");
+		contentTypes.put("ico", "image/x-icon");
+		contentTypes.put("webp", "image/webp");
+		contentTypes.put("woff", "font/woff");
+		contentTypes.put("woff2", "font/woff2");
+		contentTypes.put("otf", "font/otf");
+		contentTypes.put("ttf", "font/ttf");
+		contentTypes.put("mp4", "video/mp4");
+		contentTypes.put("webm", "video/webm");
+		contentTypes.put("ogg", "audio/ogg");
+		contentTypes.put("csv", "text/csv");
+		contentTypes.put("md", "text/markdown");
+
+		buildTable();
+	}
+
+	private ContentTypes() {}
+
+	private static void loadJettyMimeTypes() {
+		InputStream inputStream = ContentTypes.class.getClassLoader().getResourceAsStream(JETTY_MIME_TYPES);
+		if (inputStream == null) {
+			return;
+		}
+
+		try {
+			Properties properties = new Properties();
+			properties.load(inputStream);
+
+			for (String extension : properties.stringPropertyNames()) {
+				contentTypes.put(extension.toLowerCase(Locale.ENGLISH), properties.getProperty(extension).trim());
+			}
+		} catch (IOException e) {
+			// we still have our own content types
+		} finally {
+			try {
+				inputStream.close();
+			} catch (IOException e) {}
+		}
+	}
+
+	/**
+	 * Helper method. Builds the table that is used to resolve the content types.
+	 */
+	private static void buildTable() {
+		Map<String,String> newTable = new HashMap<String,String>();
+		for (Map.Entry<String,String> entry : contentTypes.entrySet()) {
+			newTable.put(entry.getKey(), withCharset(entry.getValue()));
+		}
+
+		table = newTable;
+	}
+
+	private static String withCharset(String contentType) {
+		if (defaultCharset == null || !isText(contentType) || contentType.indexOf(';') != -1) {
+			return contentType;
+		}
+
+		return contentType + "; charset=" + defaultCharset;
+	}
+
+	/**
+	 * Tells if the content type is text and should have a charset.
+	 */
+	private static boolean isText(String contentType) {
+		return contentType.startsWith("text/") || contentType.endsWith("+xml") || contentType.endsWith("+json")
+				|| contentType.equals("application/javascript") || contentType.equals("application/json")
+				|| contentType.equals("application/xml");
+	}
+
+	/**
+	 * Retrieves the content type of a file.
+	 *
+	 * @param fileName the name (or path) of the file.
+	 *
+	 * @return the content type or null if the extension of the file is unknown.
+	 */
+	public static String get(String fileName) {
+		if (fileName == null) {
+			return null;
+		}
+
+		int dot = fileName.lastIndexOf('.');
+		if (dot == -1 || dot < fileName.lastIndexOf('/')) {
+			return null;
+		}
+
+		return table.get(fileName.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+	}
+
+	/**
+	 * Retrieves the content type of a file, or the <code>defaultContentType</code> if the extension is unknown.
+	 *
+	 * @param fileName the name (or path) of the file.
+	 * @param defaultContentType the value returned if the extension of the file is unknown.
+	 *
+	 * @return the content type of the file or the <code>defaultContentType</code>.
+	 */
+	public static String get(String fileName, String defaultContentType) {
+		String contentType = get(fileName);
+		return contentType == null ? defaultContentType : contentType;
+	}
+
+	/**
+	 * Registers (or replaces) the content type of an extension.
+	 *
+	 * @param extension the extension without the dot (e.g. "js").
+	 * @param contentType the content type. If it is text and has no charset, the default charset is added.
+	 */
+	public static synchronized void register(String extension, String contentType) {
+		Preconditions.notEmpty(extension, "no extension provided");
+		Preconditions.notEmpty(contentType, "no contentType provided");
+
+		contentTypes.put(extension.toLowerCase(Locale.ENGLISH), contentType.trim());
+		buildTable();
+	}
+
+	public static synchronized String getDefaultCharset() {
+		return defaultCharset;
+	}
+
+	/**
+	 * Sets the charset that is added to the content types of text files.
+	 *
+	 * @param charset the charset (e.g. "UTF-8") or null to not add a charset.
+	 */
+	public static synchronized void setDefaultCharset(String charset) {
+		defaultCharset = charset;
+		buildTable();
+	}
+
+}
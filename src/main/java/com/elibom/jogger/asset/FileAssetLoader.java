@@ -1,11 +1,7 @@
 package com.elibom.jogger.asset;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 
-import org.eclipse.jetty.http.MimeTypes;
-import org.eclipse.jetty.io.Buffer;
 import com.elibom.jogger.util.Preconditions;
 
 /**
@@ -17,6 +13,8 @@ public class FileAssetLoader implements AssetLoader {
 
 	private static final String DEFAULT_BASE_DIRECTORY = "assets";
 
+	private static final String DEFAULT_CONTENT_TYPE = "text/plain";
+
 	private File parent;
 
 	/**
@@ -43,26 +41,20 @@ public class FileAssetLoader implements AssetLoader {
 
 	@Override
 	public Asset load(String fileName) {
-		try {
-			File file = new File(parent, fileName);
-
-			if (!file.exists() || !file.isFile()) {
-				return null;
-			}
-
-			long lastModified = file.lastModified();
-			MimeTypes mimeTypes = new MimeTypes();
+		File file = new File(parent, fileName);
 
-			String contentType = MimeTypes.TEXT_PLAIN;
-			Buffer buffer = mimeTypes.getMimeByExtension(file.getName());
-			if (buffer != null) {
-				contentType = buffer.toString();
-			}
-
-			return new Asset(new FileInputStream(file), file.getName(), contentType, file.length(), lastModified);
-		} catch (FileNotFoundException e) {
+		if (!file.exists() || !file.isFile()) {
 			return null;
 		}
+
+		return new Asset(file, ContentTypes.get(file.getName(), DEFAULT_CONTENT_TYPE));
+	}
+
+	/**
+	 * @return the directory from which the assets are loaded.
+	 */
+	public File getParent() {
+		return parent;
 	}
 
 }
@@ -0,0 +1,129 @@
+package com.elibom.jogger.asset;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.elibom.jogger.util.Preconditions;
+
+/**
+ * An {@link AssetLoader} implementation that memory maps the large files retrieved from a {@link FileAssetLoader}. Each
+ * file is mapped once and the buffer is shared by all the requests (and the ranges requested), so serving the file
+ * doesn't open, seek or read it. Files smaller than the <code>threshold</code> (or bigger than 2 GB) are returned as
+ * they come from the {@link FileAssetLoader}.
+ *
+ * When the last modified date or the length of a file changes, the file is mapped again; the old buffer is unmapped
+ * when it is garbage collected. Keep in mind that files shouldn't be modified in place while they are mapped (i.e.
+ * replace them with a new file instead), as truncating a mapped file makes reading the buffer fail.
+ *
+ * @author German Escobar
+ */
+public class MappedAssetLoader implements AssetLoader {
+
+	private static final long DEFAULT_THRESHOLD = 1024 * 1024;
+
+	private final FileAssetLoader fileAssetLoader;
+
+	/**
+	 * The minimum length of a file to be mapped.
+	 */
+	private final long threshold;
+
+	/**
+	 * The mapped files by their uri.
+	 */
+	private final ConcurrentMap<String,Mapping> mappings = new ConcurrentHashMap<String,Mapping>();
+
+	/**
+	 * Constructor. Initializes the object with the default threshold (1 MB).
+	 *
+	 * @param fileAssetLoader the loader from which we retrieve the files.
+	 */
+	public MappedAssetLoader(FileAssetLoader fileAssetLoader) {
+		this(fileAssetLoader, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param fileAssetLoader the loader from which we retrieve the files.
+	 * @param threshold the minimum length of a file to be mapped.
+	 */
+	public MappedAssetLoader(FileAssetLoader fileAssetLoader, long threshold) {
+		Preconditions.notNull(fileAssetLoader, "no fileAssetLoader provided");
+		this.fileAssetLoader = fileAssetLoader;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public Asset load(String uri) {
+		Asset asset = fileAssetLoader.load(uri);
+		if (asset == null) {
+			mappings.remove(uri);
+			return null;
+		}
+
+		File file = asset.getFile();
+		long length = asset.getLength();
+		if (file == null || length < threshold || length > Integer.MAX_VALUE) {
+			mappings.remove(uri);
+			return asset;
+		}
+
+		Mapping mapping = mappings.get(uri);
+		if (mapping == null || mapping.lastModified != asset.getLastModified() || mapping.buffer.capacity() != length) {
+			try {
+				mapping = new Mapping(map(file, length), asset.getLastModified());
+			} catch (IOException e) {
+				// serve the file without mapping it
+				mappings.remove(uri);
+				return asset;
+			}
+			mappings.put(uri, mapping);
+		}
+
+		return new Asset(file, mapping.buffer, asset.getContentType(), mapping.lastModified);
+	}
+
+	private static MappedByteBuffer map(File file, long length) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+		} finally {
+			// the mapping remains valid after closing the file
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * @return the number of files that are currently mapped.
+	 */
+	public int getMappedCount() {
+		return mappings.size();
+	}
+
+	public long getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * A mapped file.
+	 */
+	private static class Mapping {
+
+		private final MappedByteBuffer buffer;
+
+		private final long lastModified;
+
+		Mapping(MappedByteBuffer buffer, long lastModified) {
+			this.buffer = buffer;
+			this.lastModified = lastModified;
+		}
+
+	}
+
+}
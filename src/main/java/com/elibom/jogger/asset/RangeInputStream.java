@@ -0,0 +1,116 @@
+package com.elibom.jogger.asset;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that skips a number of bytes of the underlying stream (the first time it is read) and then reads, at
+ * most, <code>length</code> bytes. Used to read a range of an {@link Asset}.
+ *
+ * @author German Escobar
+ */
+public class RangeInputStream extends FilterInputStream {
+
+	/**
+	 * The number of bytes that we still need to skip.
+	 */
+	private long skip;
+
+	/**
+	 * The number of bytes that we can still read.
+	 */
+	private long remaining;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param in the underlying input stream.
+	 * @param skip the number of bytes of the underlying stream to skip.
+	 * @param length the maximum number of bytes to read after skipping.
+	 */
+	public RangeInputStream(InputStream in, long skip, long length) {
+		super(in);
+		this.skip = skip;
+		this.remaining = length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		skipOffset();
+		if (remaining <= 0) {
+			return -1;
+		}
+
+		int b = in.read();
+		if (b == -1) {
+			throw new EOFException("Unexpected end of stream, " + remaining + " bytes remaining");
+		}
+		remaining--;
+
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		skipOffset();
+		if (remaining <= 0) {
+			return -1;
+		}
+
+		int read = in.read(b, off, (int) Math.min(len, remaining));
+		if (read == -1) {
+			throw new EOFException("Unexpected end of stream, " + remaining + " bytes remaining");
+		}
+		remaining -= read;
+
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		skipOffset();
+		long skipped = in.skip(Math.min(n, remaining));
+		remaining -= skipped;
+
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		skipOffset();
+		return (int) Math.min(in.available(), remaining);
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	/**
+	 * Helper method. Skips the bytes that are before the range, if we haven't done it already.
+	 */
+	private void skipOffset() throws IOException {
+		while (skip > 0) {
+			long skipped = in.skip(skip);
+			if (skipped <= 0) {
+				// skip might return 0 before the end of the stream, read a byte to find out
+				if (in.read() == -1) {
+					throw new EOFException("Unexpected end of stream, " + skip + " bytes to skip");
+				}
+				skipped = 1;
+			}
+			skip -= skipped;
+		}
+	}
+
+}
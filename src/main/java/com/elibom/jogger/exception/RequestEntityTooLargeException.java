@@ -0,0 +1,23 @@
+package com.elibom.jogger.exception;
+
+/**
+ * Signals that a status 413 should be returned to the user because the body of the request exceeds a limit. If the
+ * <code>message</code> is not null, it will be written to the body of the response.
+ *
+ * @author German Escobar
+ */
+public class RequestEntityTooLargeException extends WebApplicationException {
+
+	private static final long serialVersionUID = 1L;
+	
+	private static final int STATUS = 413;
+	private static final String NAME = "Request Entity Too Large";
+
+	public RequestEntityTooLargeException() {
+		super(STATUS, NAME);
+	}
+	
+	public RequestEntityTooLargeException(String message) {
+		super(STATUS, NAME, message);
+	}
+}
@@ -1,13 +1,13 @@
 package com.elibom.jogger.http;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.elibom.jogger.middleware.router.Route;
+import com.elibom.jogger.util.Preconditions;
 
 
 /**
@@ -23,7 +23,12 @@ public abstract class AbstractRequest implements Request {
 	/**
 	 * Holds the path variables of the request.
 	 */
-	protected Map<String,String> pathVariables = new HashMap<String,String>();
+	protected Map<String,String> pathVariables = Collections.emptyMap();
+
+	/**
+	 * The deferred that completes the response if the request is asynchronous, null otherwise.
+	 */
+	private volatile Deferred deferred;
 
 	@Override
 	public Map<String, String> getPathVariables() {
@@ -35,44 +40,53 @@ public abstract class AbstractRequest implements Request {
 		return pathVariables.get(name);
 	}
 
-	/**
-	 * Helper method. Initializes the pathVariables property of this class.
-	 *
-	 * @param routePath the route path as defined in the routes.config file.
-	 */
-	protected void initPathVariables(String routePath) {
-		pathVariables.clear();
-		
-		List<String> variables = getVariables(routePath);
-		String regexPath = routePath.replaceAll(Path.VAR_REGEXP, Path.VAR_REPLACE);
+	@Override
+	public void setRoute(Route route, Map<String,String> pathVariables) {
+		Preconditions.notNull(route, "no route provided.");
+		Preconditions.notNull(pathVariables, "no pathVariables provided.");
 
-		Matcher matcher = Pattern.compile("(?i)" + regexPath).matcher(getPath());
-		matcher.matches();
+		this.route = route;
+		this.pathVariables = pathVariables;
+	}
 
-		// start index at 1 as group(0) always stands for the entire expression
-		for (int i=1; i <= variables.size(); i++) {
-			String value = matcher.group(i);
-			pathVariables.put(variables.get(i-1), value);
+	@Override
+	public void startAsync(Deferred deferred) throws IllegalStateException {
+		Preconditions.notNull(deferred, "no deferred provided.");
+		if (this.deferred != null) {
+			throw new IllegalStateException("The request is already asynchronous");
 		}
+
+		this.deferred = deferred;
+	}
+
+	@Override
+	public Deferred getDeferred() {
+		return deferred;
 	}
 
 	/**
-	 * Helper method. Retrieves all the variables defined in the path.
-	 *
-	 * @param routePath the route path as defined in the routes.config file.
+	 * Helper method. Initializes the pathVariables property of this class matching the path of the request against the
+	 * compiled pattern of the <code>route</code>.
 	 *
-	 * @return a List object with the names of the variables.
+	 * @param route the route that matched this request.
 	 */
-	private List<String> getVariables(String routePath) {
-		List<String> variables = new ArrayList<String>();
-
-		Matcher matcher = Pattern.compile(Path.VAR_REGEXP).matcher(routePath);
-		while (matcher.find()) {
-			// group(0) always stands for the entire expression and we only want what is inside the {}
-			variables.add(matcher.group(1));
+	protected void initPathVariables(Route route) {
+		List<String> variables = route.getVariables();
+		if (variables.isEmpty()) {
+			pathVariables = Collections.emptyMap();
+			return;
 		}
 
-		return variables;
+		Matcher matcher = route.getPattern().matcher(getPath());
+		matcher.matches();
+
+		// start index at 1 as group(0) always stands for the entire expression
+		Map<String,String> values = new HashMap<String,String>();
+		for (int i=1; i <= variables.size(); i++) {
+			String value = matcher.group(i);
+			values.put(variables.get(i-1), value);
+		}
+		pathVariables = values;
 	}
 
 }
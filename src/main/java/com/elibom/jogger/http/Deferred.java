@@ -0,0 +1,182 @@
+package com.elibom.jogger.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.elibom.jogger.util.Preconditions;
+
+/**
+ * The result of an asynchronous controller action. The action returns a <code>Deferred</code> instead of writing the
+ * response, the request is suspended (releasing the server thread) and the response is completed when another thread
+ * calls {@link #complete()} or {@link #fail(Exception)}:
+ *
+ * <pre><code>
+ * 	public Deferred show(Request request, final Response response) {
+ * 		final Deferred deferred = new Deferred();
+ * 		client.get(request.getPathVariable("id"), new Callback() {
+ * 			public void onSuccess(String json) {
+ * 				response.contentType("application/json").write(json);
+ * 				deferred.complete();
+ * 			}
+ *
+ * 			public void onError(Exception e) {
+ * 				deferred.fail(e);
+ * 			}
+ * 		});
+ *
+ * 		return deferred;
+ * 	}
+ * </code></pre>
+ *
+ * @author German Escobar
+ */
+public class Deferred {
+
+	/**
+	 * Notified when a {@link Deferred} is done.
+	 *
+	 * @author German Escobar
+	 */
+	public interface Listener {
+
+		/**
+		 * Called when the deferred is done. Listeners are called in the order they were added; if a listener throws an
+		 * exception, it is passed to the following listeners as the failure or, if no listener follows, it is thrown to
+		 * the caller of {@link Deferred#complete()}, {@link Deferred#fail(Exception)} or
+		 * {@link Deferred#addListener(Listener)}.
+		 *
+		 * @param failure the exception that failed the deferred or null if it completed successfully.
+		 *
+		 * @throws Exception
+		 */
+		void onComplete(Exception failure) throws Exception;
+
+	}
+
+	private final List<Listener> listeners = new ArrayList<Listener>();
+
+	private boolean done = false;
+
+	/**
+	 * Tells if a thread is calling the listeners, listeners added meanwhile are called by that thread.
+	 */
+	private boolean notifying = false;
+
+	private Exception failure;
+
+	/**
+	 * The failure passed to the next listener: the failure of this deferred or the exception thrown by a listener.
+	 */
+	private Exception listenerFailure;
+
+	/**
+	 * Completes this deferred successfully.
+	 *
+	 * @return true if this call completed the deferred, false if it was already done.
+	 * @throws RuntimeException if the last listener throws an exception (checked exceptions are wrapped).
+	 */
+	public boolean complete() {
+		return finish(null);
+	}
+
+	/**
+	 * Completes this deferred with an exception that is handled as if the action had thrown it.
+	 *
+	 * @param failure the exception that caused the failure.
+	 *
+	 * @return true if this call completed the deferred, false if it was already done.
+	 * @throws RuntimeException if the last listener throws an exception (checked exceptions are wrapped).
+	 */
+	public boolean fail(Exception failure) {
+		Preconditions.notNull(failure, "no failure provided");
+		return finish(failure);
+	}
+
+	/**
+	 * Adds a listener that is called when this deferred is done. If it is already done, the listener is called
+	 * immediately in the calling thread (unless another thread is calling the listeners).
+	 *
+	 * @param listener the listener to be added.
+	 * @throws RuntimeException if the listener is called and throws an exception (checked exceptions are wrapped).
+	 */
+	public void addListener(Listener listener) {
+		Preconditions.notNull(listener, "no listener provided");
+
+		synchronized (this) {
+			listeners.add(listener);
+			if (!done || notifying) {
+				return;
+			}
+			notifying = true;
+		}
+
+		notifyListeners();
+	}
+
+	public synchronized boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * @return the exception that failed this deferred or null if it is not done or it completed successfully.
+	 */
+	public synchronized Exception getFailure() {
+		return failure;
+	}
+
+	private boolean finish(Exception failure) {
+		synchronized (this) {
+			if (done) {
+				return false;
+			}
+
+			this.done = true;
+			this.failure = failure;
+			this.listenerFailure = failure;
+			this.notifying = true;
+		}
+
+		notifyListeners();
+
+		return true;
+	}
+
+	/**
+	 * Helper method. Calls the pending listeners in order. An exception thrown by a listener is passed to the following
+	 * ones, including those added later; if no listener follows, it is thrown to the caller.
+	 */
+	private void notifyListeners() {
+		while (true) {
+			Listener listener;
+			Exception failure;
+			synchronized (this) {
+				if (listeners.isEmpty()) {
+					notifying = false;
+					return;
+				}
+
+				listener = listeners.remove(0);
+				failure = listenerFailure;
+			}
+
+			// listeners are called outside the lock as they usually write the response
+			try {
+				listener.onComplete(failure);
+			} catch (Exception e) {
+				synchronized (this) {
+					listenerFailure = e;
+					if (!listeners.isEmpty()) {
+						continue;
+					}
+					notifying = false;
+				}
+
+				if (e instanceof RuntimeException) {
+					throw (RuntimeException) e;
+				}
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+}
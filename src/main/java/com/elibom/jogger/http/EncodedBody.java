@@ -0,0 +1,89 @@
+package com.elibom.jogger.http;
+
+import java.io.UnsupportedEncodingException;
+
+import com.elibom.jogger.util.Preconditions;
+
+/**
+ * A response body that is already encoded: the bytes, the content type and the length. It is immutable, so a body
+ * that doesn't change (e.g. a static JSON document) can be created once and written in many responses without
+ * encoding it again:
+ *
+ * <pre><code>
+ * 	private static final EncodedBody OK = new EncodedBody("{\"status\": \"ok\"}", "application/json; charset=UTF-8");
+ *
+ * 	public void status(Request request, Response response) {
+ * 		response.write(OK);
+ * 	}
+ * </code></pre>
+ *
+ * @author German Escobar
+ */
+public final class EncodedBody {
+
+	private final byte[] bytes;
+
+	private final String contentType;
+
+	/**
+	 * The length of the body as a String, it is used as the value of the Content-Length header.
+	 */
+	private final String contentLength;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param bytes the encoded body. The array is not copied, so it shouldn't be modified.
+	 * @param contentType the content type of the body or null if it is set in the response.
+	 */
+	public EncodedBody(byte[] bytes, String contentType) {
+		Preconditions.notNull(bytes, "no bytes provided");
+
+		this.bytes = bytes;
+		this.contentType = contentType;
+		this.contentLength = String.valueOf(bytes.length);
+	}
+
+	/**
+	 * Constructor. Encodes the <code>content</code> using UTF-8.
+	 *
+	 * @param content the content of the body.
+	 * @param contentType the content type of the body or null if it is set in the response.
+	 */
+	public EncodedBody(String content, String contentType) {
+		this(encode(content), contentType);
+	}
+
+	private static byte[] encode(String content) {
+		Preconditions.notNull(content, "no content provided");
+
+		try {
+			return content.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new HttpException(e);
+		}
+	}
+
+	/**
+	 * @return the encoded body. The array is shared, so it shouldn't be modified.
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public int getLength() {
+		return bytes.length;
+	}
+
+	/**
+	 * @return the length of the body formatted as the value of the Content-Length header.
+	 */
+	public String getContentLength() {
+		return contentLength;
+	}
+
+}
@@ -1,17 +1,24 @@
 package com.elibom.jogger.http;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.elibom.jogger.util.Preconditions;
 
 /**
- * Represents a file from an HTTP multipart/form-data request.
+ * Represents a file from an HTTP multipart/form-data request. The content of the file is either held in memory (small
+ * files) or stored in a temporary file.
  *
  * @author German Escobar
  */
-public class FileItem {
+public class FileItem implements Part {
 
 	/**
 	 * The name of the field to which this file was associated in the HTTP request
@@ -34,17 +41,22 @@ public class FileItem {
 	private long contentLength;
 
 	/**
-	 * The file.
+	 * The file. It is created from the <code>content</code> the first time it is requested if the file is in memory.
 	 */
 	private File file;
 
+	/**
+	 * The content of the file if it is held in memory, null otherwise.
+	 */
+	private byte[] content;
+
 	/**
 	 * The headers of the file part
 	 */
 	private Map<String,String> headers;
 
 	/**
-	 * Constructor.
+	 * Constructor. Creates a file item which content is stored in a file.
 	 *
 	 * @param fieldName the name of the field that holds the file.
 	 * @param fileName the name of the file.
@@ -54,28 +66,53 @@ public class FileItem {
 	 * @param headers
 	 */
 	public FileItem(String fieldName, String fileName, String contentType, long contentLength, File file, Map<String,String> headers) {
+		this(fieldName, fileName, contentType, contentLength, headers);
+		Preconditions.notNull(file, "no file provided");
+
+		this.file = file;
+	}
+
+	/**
+	 * Constructor. Creates a file item which content is held in memory.
+	 *
+	 * @param fieldName the name of the field that holds the file.
+	 * @param fileName the name of the file.
+	 * @param contentType
+	 * @param content the content of the file.
+	 * @param headers
+	 */
+	public FileItem(String fieldName, String fileName, String contentType, byte[] content, Map<String,String> headers) {
+		this(fieldName, fileName, contentType, content == null ? 0 : content.length, headers);
+		Preconditions.notNull(content, "no content provided");
+
+		this.content = content;
+	}
+
+	private FileItem(String fieldName, String fileName, String contentType, long contentLength, Map<String,String> headers) {
 		Preconditions.notNull(fieldName, "no fieldName provided.");
 		Preconditions.notNull(fileName, "no fileName provided.");
-		Preconditions.notNull(file, "no inputStream provided");
 
+		this.name = fieldName;
 		this.fileName = fileName;
 		this.contentType = contentType;
 		this.contentLength = contentLength;
-		this.file = file;
 		this.headers = headers;
 		if (headers == null) {
 			this.headers = new HashMap<String,String>();
 		}
 	}
 
+	@Override
 	public String getName() {
 		return name;
 	}
 
+	@Override
 	public String getFileName() {
 		return fileName;
 	}
 
+	@Override
 	public String getContentType() {
 		return contentType;
 	}
@@ -84,10 +121,92 @@ public class FileItem {
 		return contentLength;
 	}
 
-	public File getFile() {
+	/**
+	 * @return true if the content of the file is held in memory, false if it is stored in a file.
+	 */
+	public boolean isInMemory() {
+		return content != null;
+	}
+
+	/**
+	 * Retrieves the content of the file. Prefer {@link #getInputStream()} if the file is not in memory.
+	 *
+	 * @return a byte array with the content of the file.
+	 * @throws HttpException if there is a problem reading the file.
+	 */
+	public byte[] get() throws HttpException {
+		if (content != null) {
+			return content;
+		}
+
+		try {
+			InputStream inputStream = new FileInputStream(file);
+			try {
+				byte[] bytes = new byte[(int) file.length()];
+
+				int offset = 0;
+				while (offset < bytes.length) {
+					int read = inputStream.read(bytes, offset, bytes.length - offset);
+					if (read == -1) {
+						throw new IOException("Unexpected end of file " + file.getName());
+					}
+					offset += read;
+				}
+
+				return bytes;
+			} finally {
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+	}
+
+	/**
+	 * @return a new input stream with the content of the file.
+	 * @throws HttpException if there is a problem opening the file.
+	 */
+	@Override
+	public InputStream getInputStream() throws HttpException {
+		if (content != null) {
+			return new ByteArrayInputStream(content);
+		}
+
+		try {
+			return new FileInputStream(file);
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+	}
+
+	/**
+	 * Retrieves the file with the content. If the content is in memory, it is written to a temporary file the first time
+	 * this method is called.
+	 *
+	 * @return the file with the content.
+	 * @throws HttpException if there is a problem creating the temporary file.
+	 */
+	public synchronized File getFile() throws HttpException {
+		if (file == null) {
+			try {
+				File tempFile = File.createTempFile("com.elibom.jogger.file_", null);
+				OutputStream outputStream = new FileOutputStream(tempFile);
+				try {
+					outputStream.write(content);
+				} finally {
+					outputStream.close();
+				}
+
+				file = tempFile;
+			} catch (IOException e) {
+				throw new HttpException(e);
+			}
+		}
+
 		return file;
 	}
 
+	@Override
 	public Map<String, String> getHeaders() {
 		return headers;
 	}
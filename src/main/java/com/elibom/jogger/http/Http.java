@@ -12,18 +12,26 @@ public class Http {
 		public static final String ACCEPT_CHARSET = "Accept-Charset";
 		public static final String ACCEPT_ENCODING = "Accept-Encoding";
 		public static final String ACCEPT_LANGUAGE = "Accept-Language";
+		public static final String ACCEPT_RANGES = "Accept-Ranges";
 		public static final String ACCEPT_DATETIME = "Accept-Datetime";
 		public static final String AUTHORIZATION = "Authorization";
 		public static final String CACHE_CONTROL = "Cache-Control";
 		public static final String CONNECTION = "Connection";
+		public static final String CONTENT_ENCODING = "Content-Encoding";
 		public static final String CONTENT_TYPE = "Content-Type";
 		public static final String CONTENT_LENGTH = "Content-Length";
 		public static final String CONTENT_MD5 = "Content-MD5";
+		public static final String CONTENT_RANGE = "Content-Range";
 		public static final String DATE = "Date";
+		public static final String ETAG = "ETag";
 		public static final String IF_MATCH = "If-Match";
 		public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
 		public static final String IF_NONE_MATCH = "If-None-Match";
+		public static final String IF_RANGE = "If-Range";
+		public static final String LAST_MODIFIED = "Last-Modified";
+		public static final String RANGE = "Range";
 		public static final String USER_AGENT = "User-Agent";
+		public static final String VARY = "Vary";
 	}
 
 	public static class ContentType {
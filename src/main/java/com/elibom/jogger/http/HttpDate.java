@@ -0,0 +1,210 @@
+package com.elibom.jogger.http;
+
+/**
+ * Formats and parses HTTP dates without using <code>SimpleDateFormat</code>, which is not thread-safe and is expensive
+ * to create. Dates are formatted using the RFC 1123 format (e.g. "Sun, 06 Nov 1994 08:49:37 GMT") and parsed in any of
+ * the three formats allowed by HTTP/1.1 (RFC 1123, RFC 850 and ANSI C asctime). All the methods of this class are
+ * thread-safe.
+ *
+ * @author German Escobar
+ */
+public final class HttpDate {
+
+	private static final String[] DAYS = { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" };
+
+	private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct",
+			"Nov", "Dec" };
+
+	private HttpDate() {}
+
+	/**
+	 * Formats an epoch time (in milliseconds) as an HTTP date using the RFC 1123 format. The milliseconds are ignored.
+	 *
+	 * @param time the epoch time in milliseconds.
+	 *
+	 * @return the formatted date (e.g. "Sun, 06 Nov 1994 08:49:37 GMT").
+	 */
+	public static String format(long time) {
+		long second = floorDiv(time, 1000);
+		char[] buf = new char[29];
+
+		long days = floorDiv(second, 86400);
+		int secondOfDay = (int) (second - days * 86400);
+
+		// from days since epoch to year, month and day (proleptic gregorian calendar)
+		long z = days + 719468;
+		long era = floorDiv(z, 146097);
+		int dayOfEra = (int) (z - era * 146097);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int mp = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+		String dayName = DAYS[(int) floorMod(days + 4, 7)];
+		String monthName = MONTHS[month - 1];
+
+		buf[0] = dayName.charAt(0);
+		buf[1] = dayName.charAt(1);
+		buf[2] = dayName.charAt(2);
+		buf[3] = ',';
+		buf[4] = ' ';
+		putTwoDigits(buf, 5, day);
+		buf[7] = ' ';
+		buf[8] = monthName.charAt(0);
+		buf[9] = monthName.charAt(1);
+		buf[10] = monthName.charAt(2);
+		buf[11] = ' ';
+		putTwoDigits(buf, 12, (int) (year / 100) % 100);
+		putTwoDigits(buf, 14, (int) (year % 100));
+		buf[16] = ' ';
+		putTwoDigits(buf, 17, secondOfDay / 3600);
+		buf[19] = ':';
+		putTwoDigits(buf, 20, (secondOfDay / 60) % 60);
+		buf[22] = ':';
+		putTwoDigits(buf, 23, secondOfDay % 60);
+		buf[25] = ' ';
+		buf[26] = 'G';
+		buf[27] = 'M';
+		buf[28] = 'T';
+
+		return new String(buf);
+	}
+
+	private static void putTwoDigits(char[] buf, int index, int value) {
+		buf[index] = (char) ('0' + value / 10);
+		buf[index + 1] = (char) ('0' + value % 10);
+	}
+
+	/**
+	 * Parses an HTTP date in any of the RFC 1123 (e.g. "Sun, 06 Nov 1994 08:49:37 GMT"), RFC 850 (e.g. "Sunday,
+	 * 06-Nov-94 08:49:37 GMT") or ANSI C asctime (e.g. "Sun Nov  6 08:49:37 1994") formats. Anything after a semicolon is
+	 * ignored (some browsers add a length to the If-Modified-Since header).
+	 *
+	 * @param value the value to parse.
+	 *
+	 * @return the epoch time in milliseconds or -1 if the value is not a valid HTTP date.
+	 */
+	public static long parse(String value) {
+		if (value == null) {
+			return -1;
+		}
+
+		int semicolon = value.indexOf(';');
+		String date = (semicolon == -1 ? value : value.substring(0, semicolon)).trim();
+
+		int comma = date.indexOf(',');
+		if (comma == 3 && date.length() == 29) {
+			// RFC 1123: "Sun, 06 Nov 1994 08:49:37 GMT"
+			return toTime(number(date, 12, 4), month(date, 8), number(date, 5, 2), date, 17, date.endsWith(" GMT")
+					&& date.charAt(4) == ' ' && date.charAt(7) == ' ' && date.charAt(11) == ' ' && date.charAt(16) == ' ');
+		}
+
+		if (comma > 3) {
+			// RFC 850: "Sunday, 06-Nov-94 08:49:37 GMT"
+			int i = comma + 2;
+			if (date.length() != i + 22) {
+				return -1;
+			}
+
+			int year = number(date, i + 7, 2);
+			if (year != -1) {
+				year += year < 70 ? 2000 : 1900;
+			}
+
+			return toTime(year, month(date, i + 3), number(date, i, 2), date, i + 10, date.endsWith(" GMT")
+					&& date.charAt(i + 2) == '-' && date.charAt(i + 6) == '-' && date.charAt(i + 9) == ' ');
+		}
+
+		if (comma == -1 && date.length() == 24) {
+			// asctime: "Sun Nov  6 08:49:37 1994"
+			int day = date.charAt(8) == ' ' ? number(date, 9, 1) : number(date, 8, 2);
+			return toTime(number(date, 20, 4), month(date, 4), day, date, 11, date.charAt(3) == ' '
+					&& date.charAt(7) == ' ' && date.charAt(10) == ' ' && date.charAt(19) == ' ');
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Helper method. Creates the epoch time from the date and the time that starts in the <code>timeIndex</code>
+	 * position of the value (i.e. "08:49:37").
+	 */
+	private static long toTime(int year, int month, int day, String value, int timeIndex, boolean valid) {
+		int hour = number(value, timeIndex, 2);
+		int minute = number(value, timeIndex + 3, 2);
+		int second = number(value, timeIndex + 6, 2);
+
+		if (!valid || year == -1 || month == -1 || day < 1 || day > 31 || hour == -1 || hour > 23 || minute == -1
+				|| minute > 59 || second == -1 || second > 60 || value.charAt(timeIndex + 2) != ':'
+				|| value.charAt(timeIndex + 5) != ':') {
+			return -1;
+		}
+
+		// from year, month and day to days since epoch
+		int y = month <= 2 ? year - 1 : year;
+		long era = floorDiv(y, 400);
+		int yearOfEra = (int) (y - era * 400);
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		long days = era * 146097 + dayOfEra - 719468;
+
+		return ((days * 86400) + hour * 3600 + minute * 60 + second) * 1000;
+	}
+
+	/**
+	 * Helper method. Parses the month name that starts in the <code>index</code> position of the value.
+	 *
+	 * @return the month (from 1 to 12) or -1 if it is not valid.
+	 */
+	private static int month(String value, int index) {
+		if (index + 3 > value.length()) {
+			return -1;
+		}
+
+		for (int i=0; i < MONTHS.length; i++) {
+			if (value.regionMatches(true, index, MONTHS[i], 0, 3)) {
+				return i + 1;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Helper method. Parses a positive number of <code>length</code> digits that starts in the <code>index</code>
+	 * position of the value.
+	 *
+	 * @return the number or -1 if it is not valid.
+	 */
+	private static int number(String value, int index, int length) {
+		if (index + length > value.length()) {
+			return -1;
+		}
+
+		int ret = 0;
+		for (int i=index; i < index + length; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			ret = ret * 10 + (c - '0');
+		}
+
+		return ret;
+	}
+
+	private static long floorDiv(long x, long y) {
+		long r = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0)) {
+			r--;
+		}
+		return r;
+	}
+
+	private static long floorMod(long x, long y) {
+		return x - floorDiv(x, y) * y;
+	}
+
+}
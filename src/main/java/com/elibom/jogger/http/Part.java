@@ -0,0 +1,42 @@
+package com.elibom.jogger.http;
+
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Represents a part of an HTTP multipart/form-data request: a form field or a file.
+ *
+ * @author German Escobar
+ */
+public interface Part {
+
+	/**
+	 * @return the name of the field to which this part is associated.
+	 */
+	String getName();
+
+	/**
+	 * @return the name of the file taken from the filename attribute of the Content-Disposition header, or null if this
+	 * part is a form field.
+	 */
+	String getFileName();
+
+	/**
+	 * @return the content type taken from the Content-Type header of the part, or null if not specified.
+	 */
+	String getContentType();
+
+	/**
+	 * @return the headers of the part.
+	 */
+	Map<String,String> getHeaders();
+
+	/**
+	 * Retrieves the content of the part.
+	 *
+	 * @return an InputStream with the content of the part.
+	 * @throws HttpException if there is a problem opening the content.
+	 */
+	InputStream getInputStream() throws HttpException;
+
+}
@@ -1,6 +1,8 @@
 package com.elibom.jogger.http;
 
 import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import com.elibom.jogger.middleware.router.Route;
@@ -54,7 +56,8 @@ public interface Request {
 	String getQueryString();
 
 	/**
-	 * Retrieves the request parameters.
+	 * Retrieves the request parameters. If a parameter is both in the query string (or an url encoded body) and in a
+	 * multipart/form-data body, the value of the former is used.
 	 *
 	 * @return a Map<String,String> object with the request parameters.
 	 */
@@ -69,6 +72,15 @@ public interface Request {
 	 */
 	String getParameter(String name);
 
+	/**
+	 * Retrieves all the values of a request parameter.
+	 *
+	 * @param name the name of the parameter.
+	 *
+	 * @return an unmodifiable List of String objects. An empty list if the parameter doesn't exists.
+	 */
+	List<String> getParameterValues(String name);
+
 	/**
 	 * Returns the HTTP method of the request.
 	 *
@@ -106,6 +118,15 @@ public interface Request {
 
 	String getHeader(String name);
 
+	/**
+	 * Retrieves all the values of a header.
+	 *
+	 * @param name the name of the header (case-insensitive).
+	 *
+	 * @return an unmodifiable List of String objects. An empty list if the header doesn't exists.
+	 */
+	List<String> getHeaderValues(String name);
+
 	/**
 	 * Retrieves the files from the request (if any).
 	 *
@@ -113,6 +134,20 @@ public interface Request {
 	 */
 	FileItem[] getFiles();
 
+	/**
+	 * Retrieves the parts of a multipart request as they are read from the body, without storing the files in memory or
+	 * in temporary files. The input stream of a part can only be read until <code>hasNext()</code> or
+	 * <code>next()</code> is called again; the rest of its content is skipped. The iterator throws an
+	 * {@link HttpException} if there is a problem reading the body.
+	 *
+	 * The body can only be read once, so the multipart form fields and files are not available from
+	 * {@link #getParameter(String)} and {@link #getFiles()} if this method is called.
+	 *
+	 * @return an iterator of {@link Part} objects, empty if the request is not multipart.
+	 * @throws IllegalStateException if the multipart content was already parsed.
+	 */
+	Iterator<Part> getParts() throws IllegalStateException;
+
 	/**
 	 * Returns an object that will allow us to retrieve the body in multiple ways.
 	 *
@@ -120,24 +155,74 @@ public interface Request {
 	 */
 	BodyParser getBody();
 	
+	/**
+	 * Sets the route that matched this request, the path variables are extracted from the path of the request.
+	 *
+	 * @param route the {@link Route} that matched this request.
+	 */
 	void setRoute(Route route);
 
+	/**
+	 * Sets the route that matched this request with the path variables that were already captured while matching it.
+	 *
+	 * @param route the {@link Route} that matched this request.
+	 * @param pathVariables the path variables captured from the path of the request.
+	 */
+	void setRoute(Route route, Map<String,String> pathVariables);
+
+	/**
+	 * Marks this request as asynchronous: the server thread is released when the middlewares return and the response
+	 * is completed when the <code>deferred</code> is done. It is called by the router when an action returns a
+	 * {@link Deferred}.
+	 *
+	 * @param deferred the {@link Deferred} that will complete the response.
+	 * @throws IllegalStateException if the request is already asynchronous.
+	 */
+	void startAsync(Deferred deferred) throws IllegalStateException;
+
+	/**
+	 * Retrieves the {@link Deferred} of an asynchronous request. Interceptors can use it to perform their tasks when
+	 * the response is completed instead of when the action returns:
+	 *
+	 * <pre><code>
+	 * 	execution.proceed();
+	 * 	if (request.getDeferred() != null) {
+	 * 		request.getDeferred().addListener(listener);
+	 * 	}
+	 * </code></pre>
+	 *
+	 * @return the {@link Deferred} passed to {@link #startAsync(Deferred)} or null if the request is synchronous.
+	 */
+	Deferred getDeferred();
+
 	/**
 	 * This is what we returned when the {@link Request#getBody()} is called. Provides convenient methods to parse the
-	 * request body.
+	 * request body. The body is read once and kept in memory, so it can be retrieved many times (e.g. by an
+	 * interceptor and by the controller).
 	 *
 	 * @author German Escobar
 	 */
 	interface BodyParser {
 
 		/**
-		 * Returns the body of the request as a string.
+		 * Returns the body of the request as a string decoded with the charset of the request (UTF-8 if not specified).
 		 *
 		 * @return a String object with the body.
 		 */
 		String asString();
 
 		/**
+		 * Returns the bytes of the body of the request.
+		 *
+		 * @return a byte array with the body.
+		 */
+		byte[] asBytes();
+
+		/**
+		 * Returns the body as an InputStream. If the body hasn't been read with {@link #asString()} or
+		 * {@link #asBytes()}, the stream is read directly from the request (i.e. it is not kept in memory), so the body
+		 * can't be retrieved again.
+		 *
 		 * @return the body as an InputStream.
 		 */
 		InputStream asInputStream();
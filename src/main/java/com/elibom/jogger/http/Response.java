@@ -1,5 +1,8 @@
 package com.elibom.jogger.http;
 
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import com.elibom.jogger.asset.Asset;
@@ -17,6 +20,7 @@ public interface Response {
 	int ACCEPTED = 202;
 	int PARTIAL_INFO = 203;
 	int NO_RESPONSE = 204;
+	int PARTIAL_CONTENT = 206;
 	int MOVED = 301;
 	int FOUND = 302;
 	int METHOD = 303;
@@ -27,6 +31,8 @@ public interface Response {
 	int FORBIDDEN = 403;
 	int NOT_FOUND = 404;
 	int CONFLICT = 409;
+	int REQUEST_ENTITY_TOO_LARGE = 413;
+	int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
 	int INTERNAL_ERROR = 500;
 	int NOT_IMPLEMENTED = 501;
 	int OVERLOADED = 502;
@@ -119,6 +125,62 @@ public interface Response {
 	 */
 	Response write(Asset asset);
 
+	/**
+	 * Writes bytes into the response without any character encoding. It can be called many times to write the body in
+	 * pieces; use {@link #write(EncodedBody)} to send the Content-Length of a whole body.
+	 *
+	 * @param bytes the bytes to write in the response.
+	 *
+	 * @return itself for method chaining.
+	 */
+	Response write(byte[] bytes);
+
+	/**
+	 * Writes the remaining bytes of a buffer into the response, the position of the buffer is moved to its limit. It can
+	 * be called many times to write the body in pieces.
+	 *
+	 * @param buffer the buffer to write in the response.
+	 *
+	 * @return itself for method chaining.
+	 */
+	Response write(ByteBuffer buffer);
+
+	/**
+	 * Writes an {@link EncodedBody} as the whole body of the response, setting the content type of the response (if the
+	 * body has one) and, if nothing has been written to the response, the Content-Length header. Nothing else should be
+	 * written to the response after this method is called.
+	 *
+	 * @param body the body to write in the response.
+	 *
+	 * @return itself for method chaining.
+	 */
+	Response write(EncodedBody body);
+
+	/**
+	 * Retrieves a stream to write the body of the response in pieces (e.g. the rows of a big CSV export) without
+	 * holding it in memory. The Content-Length header is not set, so the body is sent using chunked transfer encoding
+	 * and only the bytes that haven't been sent are buffered. Use {@link #flush()} to send them before the buffer is
+	 * full.
+	 *
+	 * @return the OutputStream of the response.
+	 */
+	OutputStream getOutputStream();
+
+	/**
+	 * Same as {@link #getOutputStream()} but the text is encoded with the charset of the response. Don't use both in the
+	 * same response.
+	 *
+	 * @return the Writer of the response.
+	 */
+	Writer getWriter();
+
+	/**
+	 * Sends the bytes that have been written to the client.
+	 *
+	 * @return itself for method chaining.
+	 */
+	Response flush();
+
 	/**
 	 * Renders the specified template with no additional attributes (besides those already in the response)
 	 *
@@ -1,22 +1,29 @@
 package com.elibom.jogger.http.servlet;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.http.HttpServletRequest;
 
+import com.elibom.jogger.exception.RequestEntityTooLargeException;
 import com.elibom.jogger.http.AbstractRequest;
 import com.elibom.jogger.http.Cookie;
+import com.elibom.jogger.http.Deferred;
 import com.elibom.jogger.http.FileItem;
 import com.elibom.jogger.http.HttpException;
+import com.elibom.jogger.http.Part;
 import com.elibom.jogger.http.Path;
 import com.elibom.jogger.http.servlet.multipart.Multipart;
 import com.elibom.jogger.http.servlet.multipart.MultipartException;
@@ -31,69 +38,190 @@ import com.elibom.jogger.util.Preconditions;
  */
 public class ServletRequest extends AbstractRequest {
 
+	/**
+	 * The charset used to decode the body if the request doesn't specify one.
+	 */
+	private static final String DEFAULT_BODY_CHARSET = "UTF-8";
+
+	private static final int BODY_BUFFER_SIZE = 8192;
+
 	/**
 	 * The underlying Servlet Request.
 	 */
 	private HttpServletRequest request;
 
-	private Map<String,String> multipartParams = new HashMap<String,String>();
+	/**
+	 * Used to parse the multipart/form-data, it holds the size threshold and the limits.
+	 */
+	private Multipart multipart;
+
+	/**
+	 * The values of the multipart/form-data fields.
+	 */
+	private Map<String,List<String>> multipartParams = new HashMap<String,List<String>>();
 
 	private List<FileItem> files = new ArrayList<FileItem>();
 
 	/**
-	 * Constructor.
+	 * Tells if the multipart/form-data has been parsed, which happens the first time the parameters or the files are
+	 * requested.
+	 */
+	private boolean multipartParsed = false;
+
+	/*
+	 * The following views are built from the Servlet request the first time they are requested, so repeated calls don't
+	 * create new objects.
+	 */
+
+	/**
+	 * The parameters of the Servlet request and the multipart/form-data fields, multiple values joined by commas.
+	 */
+	private Map<String,String> params;
+
+	/**
+	 * The values of the parameters of the Servlet request and the multipart/form-data fields.
+	 */
+	private Map<String,List<String>> paramValues;
+
+	/**
+	 * The first value of each header, the keys are case-insensitive.
+	 */
+	private Map<String,String> headers;
+
+	/**
+	 * The values of each header, the keys are case-insensitive.
+	 */
+	private Map<String,List<String>> headerValues;
+
+	private Map<String,Cookie> cookies;
+
+	/**
+	 * The body of the request, read the first time it is requested.
+	 */
+	private byte[] body;
+
+	/**
+	 * The maximum size (in bytes) of the body, -1 if unlimited.
+	 */
+	private long maxBodySize = -1;
+
+	/**
+	 * The context of the suspended Servlet request if the request is asynchronous, null otherwise.
+	 */
+	private volatile AsyncContext asyncContext;
+
+	/**
+	 * Constructor. The multipart/form-data is not parsed until the parameters or the files are requested, so handlers
+	 * that don't use them don't pay the cost.
 	 *
 	 * @param request the Servlet request object.
 	 * 
-	 * @throws MultipartException if there is a problem parsing the multipart/form-data.
-	 * @throws IOException if there is a problem parsing the multipart/form-data.
+	 * @throws MultipartException kept for backwards compatibility, the multipart/form-data is parsed lazily.
+	 * @throws IOException kept for backwards compatibility, the multipart/form-data is parsed lazily.
 	 */
 	public ServletRequest(HttpServletRequest request) throws MultipartException, IOException {
+		this(request, new Multipart());
+	}
+
+	/**
+	 * Constructor. The multipart/form-data is parsed with the <code>multipart</code> object, which is usually shared by
+	 * all the requests.
+	 *
+	 * @param request the Servlet request object.
+	 * @param multipart the object used to parse the multipart/form-data.
+	 */
+	public ServletRequest(HttpServletRequest request, Multipart multipart) {
 		Preconditions.notNull(request, "no servlet request provided.");
+		Preconditions.notNull(multipart, "no multipart provided.");
 		this.request = request;
-		
-		init();
+		this.multipart = multipart;
 	}
 
 	/**
-	 * Initializes the path variables and the multipart content.
+	 * Parses the multipart content (if any) the first time it is called.
 	 *
-	 * @throws MultipartException if there is a problem parsing the multipart/form-data.
-	 * @throws IOException if there is a problem parsing the multipart/form-data.
+	 * @throws HttpException wraps any exception thrown parsing the multipart/form-data.
 	 */
-	private ServletRequest init() throws MultipartException, IOException {
+	private void parseMultipart() throws HttpException {
+		if (multipartParsed) {
+			return;
+		}
+		multipartParsed = true;
+
 		// retrieve multipart/form-data parameters
 		if (Multipart.isMultipartContent(request)) {
-			Multipart multipart = new Multipart();
-			multipart.parse(request, new PartHandler() {
+			try {
+				multipart.parse(request, new PartHandler() {
+
+					@Override
+					public void handleFormItem(String name, String value) {
+						List<String> values = multipartParams.get(name);
+						if (values == null) {
+							values = new ArrayList<String>(1);
+							multipartParams.put(name, values);
+						}
+						values.add(value);
+					}
 
-				@Override
-				public void handleFormItem(String name, String value) {
-					multipartParams.put( name, value );
-				}
+					@Override
+					public void handleFileItem(String name, FileItem fileItem) {
+						files.add(fileItem);
+					}
 
-				@Override
-				public void handleFileItem(String name, FileItem fileItem) {
-					files.add(fileItem);
-				}
+				});
+			} catch (MultipartException e) {
+				throw new HttpException(e);
+			} catch (IOException e) {
+				throw new HttpException(e);
+			}
+		}
+	}
 
-			});
+	private static String join(List<String> values) {
+		if (values.size() == 1) {
+			return values.get(0);
 		}
 
-		return this;
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i < values.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(values.get(i));
+		}
+
+		return sb.toString();
 	}
 
-	private String join(String[] arr) {
-		String ret = "";
-		for (String item : arr) {
-			ret += "," + item;
+	/**
+	 * Helper method. Builds the views of the parameters of the Servlet request and the multipart/form-data fields. The
+	 * parameters of the Servlet request (e.g. the query string) take precedence over the multipart fields with the same
+	 * name, as in {@link #getParameter(String)}.
+	 */
+	private void initParameters() {
+		parseMultipart();
+
+		Map<String,List<String>> values = new HashMap<String,List<String>>();
+
+		Map<String,String[]> requestParams = request.getParameterMap();
+		for (Map.Entry<String,String[]> entry : requestParams.entrySet()) {
+			values.put( entry.getKey(), new ArrayList<String>(Arrays.asList(entry.getValue())) );
 		}
 
-		if (ret.length() > 0) {
-			ret = ret.substring(1);
+		for (Map.Entry<String,List<String>> entry : multipartParams.entrySet()) {
+			if (!values.containsKey(entry.getKey())) {
+				values.put(entry.getKey(), entry.getValue());
+			}
 		}
 
-		return ret;
+		Map<String,String> joined = new HashMap<String,String>();
+		for (Map.Entry<String,List<String>> entry : values.entrySet()) {
+			joined.put(entry.getKey(), join(entry.getValue()));
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+
+		paramValues = Collections.unmodifiableMap(values);
+		params = Collections.unmodifiableMap(joined);
 	}
 
 	@Override
@@ -118,26 +246,36 @@ public class ServletRequest extends AbstractRequest {
 
 	@Override
 	public Map<String,String> getParameters() {
-		Map<String,String> params = new HashMap<String,String>();
+		if (params == null) {
+			initParameters();
+		}
 
-		Map<String,String[]> requestParams = request.getParameterMap();
-		for (Map.Entry<String,String[]> entry : requestParams.entrySet()) {
-			params.put( entry.getKey(), join(entry.getValue()) );
+		return params;
+	}
+
+	@Override
+	public String getParameter(String name) {
+		if (params != null) {
+			return params.get(name);
 		}
 
-		params.putAll(multipartParams);
+		// avoid reading a multipart body if the parameter is in the query string
+		String[] values = request.getParameterValues(name);
+		if (values != null) {
+			return values.length == 1 ? values[0] : join(Arrays.asList(values));
+		}
 
-		return Collections.unmodifiableMap(params);
+		return getParameters().get(name);
 	}
 
 	@Override
-	public String getParameter(String name) {
-		String[] param = request.getParameterValues(name);
-		if (param != null) {
-			return join(param);
+	public List<String> getParameterValues(String name) {
+		if (paramValues == null) {
+			initParameters();
 		}
 
-		return multipartParams.get(name);
+		List<String> values = paramValues.get(name);
+		return values == null ? Collections.<String>emptyList() : values;
 	}
 
 	@Override
@@ -175,31 +313,28 @@ public class ServletRequest extends AbstractRequest {
 
 	@Override
 	public Map<String,Cookie> getCookies() {
-		javax.servlet.http.Cookie[] servletCookies = request.getCookies();
-
-		Map<String,Cookie> cookies = new HashMap<String,Cookie>();
-		for (javax.servlet.http.Cookie c : servletCookies) {
-			cookies.put( c.getName(), map(c) );
+		if (cookies == null) {
+			javax.servlet.http.Cookie[] servletCookies = request.getCookies();
+			if (servletCookies == null || servletCookies.length == 0) {
+				cookies = Collections.emptyMap();
+			} else {
+				Map<String,Cookie> map = new HashMap<String,Cookie>();
+				for (javax.servlet.http.Cookie c : servletCookies) {
+					// keep the first one if there are cookies with the same name
+					if (!map.containsKey(c.getName())) {
+						map.put( c.getName(), map(c) );
+					}
+				}
+				cookies = Collections.unmodifiableMap(map);
+			}
 		}
 
-		return Collections.unmodifiableMap(cookies);
+		return cookies;
 	}
 
 	@Override
 	public Cookie getCookie(String name) {
-		javax.servlet.http.Cookie[] servletCookies = request.getCookies();
-
-		if (servletCookies == null) {
-			return null;
-		}
-
-		for (javax.servlet.http.Cookie c : servletCookies) {
-			if (c.getName().equals(name)) {
-				return map(c);
-			}
-		}
-
-		return null;
+		return getCookies().get(name);
 	}
 
 	private Cookie map(javax.servlet.http.Cookie servletCookie) {
@@ -214,14 +349,8 @@ public class ServletRequest extends AbstractRequest {
 
 	@Override
 	public Map<String, String> getHeaders() {
-		Enumeration<String> servletHeaders = request.getHeaderNames();
-
-		Map<String,String> headers = new HashMap<String,String>();
-
-		while(servletHeaders.hasMoreElements()) {
-			String headerName = servletHeaders.nextElement();
-
-			headers.put(headerName, request.getHeader(headerName));
+		if (headers == null) {
+			initHeaders();
 		}
 
 		return headers;
@@ -232,13 +361,72 @@ public class ServletRequest extends AbstractRequest {
 		return request.getHeader(name);
 	}
 
+	@Override
+	public List<String> getHeaderValues(String name) {
+		if (headerValues == null) {
+			initHeaders();
+		}
+
+		List<String> values = headerValues.get(name);
+		return values == null ? Collections.<String>emptyList() : values;
+	}
+
+	/**
+	 * Helper method. Builds the views of the headers.
+	 */
+	private void initHeaders() {
+		Map<String,String> first = new TreeMap<String,String>(String.CASE_INSENSITIVE_ORDER);
+		Map<String,List<String>> values = new TreeMap<String,List<String>>(String.CASE_INSENSITIVE_ORDER);
+
+		Enumeration<String> servletHeaders = request.getHeaderNames();
+		while (servletHeaders != null && servletHeaders.hasMoreElements()) {
+			String headerName = servletHeaders.nextElement();
+			if (first.containsKey(headerName)) {
+				continue;
+			}
+
+			List<String> list = new ArrayList<String>(1);
+			Enumeration<String> servletValues = request.getHeaders(headerName);
+			while (servletValues != null && servletValues.hasMoreElements()) {
+				list.add(servletValues.nextElement());
+			}
+			if (list.isEmpty()) {
+				list.add(request.getHeader(headerName));
+			}
+
+			first.put(headerName, list.get(0));
+			values.put(headerName, Collections.unmodifiableList(list));
+		}
+
+		headers = Collections.unmodifiableMap(first);
+		headerValues = Collections.unmodifiableMap(values);
+	}
+
 	@Override
 	public FileItem[] getFiles() {
-		FileItem[] fileParts = new FileItem[files.size()];
-		for (int i=0; i < files.size(); i++) {
-			fileParts[i] = files.get(i);
+		parseMultipart();
+
+		return files.toArray(new FileItem[files.size()]);
+	}
+
+	@Override
+	public Iterator<Part> getParts() throws IllegalStateException, HttpException {
+		if (multipartParsed) {
+			throw new IllegalStateException("the multipart content was already parsed");
+		}
+		multipartParsed = true;
+
+		if (!Multipart.isMultipartContent(request)) {
+			return Collections.<Part>emptyList().iterator();
+		}
+
+		try {
+			return multipart.getParts(request);
+		} catch (MultipartException e) {
+			throw new HttpException(e);
+		} catch (IOException e) {
+			throw new HttpException(e);
 		}
-		return fileParts;
 	}
 
 	@Override
@@ -247,25 +435,29 @@ public class ServletRequest extends AbstractRequest {
 
 			@Override
 			public String asString() throws HttpException {
-				try {
-					BufferedReader reader = new BufferedReader( new InputStreamReader(request.getInputStream()) );
-					StringBuilder sb = new StringBuilder();
-					String line = reader.readLine();
-					while (line != null) {
-						sb.append(line + "\n");
-						line = reader.readLine();
-					}
-					reader.close();
-					String data = sb.toString();
+				String charset = request.getCharacterEncoding();
+				if (charset == null) {
+					charset = DEFAULT_BODY_CHARSET;
+				}
 
-					return data;
-				} catch (IOException e) {
+				try {
+					return new String(readBody(), charset);
+				} catch (UnsupportedEncodingException e) {
 					throw new HttpException(e);
 				}
 			}
 
+			@Override
+			public byte[] asBytes() throws HttpException {
+				return readBody();
+			}
+
 			@Override
 			public InputStream asInputStream() throws HttpException {
+				if (body != null) {
+					return new ByteArrayInputStream(body);
+				}
+
 				try {
 					return request.getInputStream();
 				} catch (IOException e) {
@@ -278,12 +470,113 @@ public class ServletRequest extends AbstractRequest {
 		return bodyParser;
 	}
 
+	/**
+	 * Helper method. Reads the body of the request the first time it is called.
+	 *
+	 * @return the bytes of the body.
+	 * @throws RequestEntityTooLargeException if the body is bigger than the <code>maxBodySize</code>.
+	 * @throws HttpException if there is a problem reading the body.
+	 */
+	private byte[] readBody() throws RequestEntityTooLargeException, HttpException {
+		if (body != null) {
+			return body;
+		}
+
+		int contentLength = request.getContentLength();
+		if (maxBodySize >= 0 && contentLength > maxBodySize) {
+			throw new RequestEntityTooLargeException("the body size (" + contentLength + " bytes) exceeds the "
+					+ "maximum of " + maxBodySize + " bytes");
+		}
+
+		try {
+			InputStream inputStream = request.getInputStream();
+
+			// the Content-Length is sent by the client, so we don't allocate more than the buffer size until the bytes
+			// are actually read
+			byte[] buffer = new byte[contentLength >= 0 ? Math.min(contentLength, BODY_BUFFER_SIZE) : BODY_BUFFER_SIZE];
+			int length = 0;
+			for (;;) {
+				if (length == buffer.length) {
+					// check if there is more data before growing the buffer
+					int b = inputStream.read();
+					if (b == -1) {
+						break;
+					}
+
+					buffer = Arrays.copyOf(buffer, growSize(buffer.length, contentLength));
+					buffer[length++] = (byte) b;
+				} else {
+					int n = inputStream.read(buffer, length, buffer.length - length);
+					if (n == -1) {
+						break;
+					}
+					length += n;
+				}
+
+				if (maxBodySize >= 0 && length > maxBodySize) {
+					throw new RequestEntityTooLargeException("the body size exceeds the maximum of " + maxBodySize
+							+ " bytes");
+				}
+			}
+
+			body = length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+
+		return body;
+	}
+
+	/**
+	 * Helper method. Calculates the new size of the body buffer: the double of the current size, but no more than the
+	 * Content-Length if the body is still smaller than it.
+	 */
+	private static int growSize(int size, int contentLength) {
+		int newSize = Math.max(size * 2, BODY_BUFFER_SIZE);
+		if (contentLength > size) {
+			newSize = Math.min(newSize, contentLength);
+		}
+
+		return newSize;
+	}
+
+	public long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	/**
+	 * Sets the maximum size of the body that is read with {@link #getBody()}. Bodies with a bigger Content-Length are
+	 * rejected before reading them; otherwise, they are rejected as soon as the limit is exceeded.
+	 *
+	 * @param maxBodySize the size in bytes or -1 if unlimited.
+	 */
+	public void setMaxBodySize(long maxBodySize) {
+		this.maxBodySize = maxBodySize;
+	}
+
 	@Override
 	public void setRoute(Route route) {
 		Preconditions.notNull(route, "no route provided.");
 		this.route = route;
 		
-		initPathVariables(route.getPath());
+		initPathVariables(route);
+	}
+
+	/**
+	 * Suspends the Servlet request immediately, so it already is when the <code>deferred</code> is done (even if it is
+	 * done by another thread before the middlewares return).
+	 */
+	@Override
+	public void startAsync(Deferred deferred) throws IllegalStateException {
+		super.startAsync(deferred);
+		this.asyncContext = request.startAsync();
+	}
+
+	/**
+	 * @return the context of the suspended Servlet request or null if the request is synchronous.
+	 */
+	public AsyncContext getAsyncContext() {
+		return asyncContext;
 	}
 
 }
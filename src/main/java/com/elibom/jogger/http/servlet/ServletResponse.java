@@ -1,16 +1,23 @@
 package com.elibom.jogger.http.servlet;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jetty.io.nio.DirectNIOBuffer;
+import org.eclipse.jetty.server.AbstractHttpConnection;
+
 import com.elibom.jogger.asset.Asset;
+import com.elibom.jogger.asset.ContentTypes;
 import com.elibom.jogger.http.Cookie;
+import com.elibom.jogger.http.EncodedBody;
 import com.elibom.jogger.http.HttpException;
 import com.elibom.jogger.http.Response;
 import com.elibom.jogger.template.TemplateEngine;
@@ -24,6 +31,8 @@ import com.elibom.jogger.util.Preconditions;
  */
 public class ServletResponse implements Response {
 
+	private static final int BUFFER_SIZE = 10240;
+
 	/**
 	 * The underlying Servlet Response.
 	 */
@@ -38,6 +47,11 @@ public class ServletResponse implements Response {
 	
 	private boolean written = false;
 
+	/**
+	 * Set when an asynchronous request is completed, as the Servlet response is recycled by the container after that.
+	 */
+	private volatile boolean closed = false;
+
 	/**
 	 * Constructor. Initializes the object with the underlying Servlet Response and the FreeMarker configuration.
 	 *
@@ -54,32 +68,59 @@ public class ServletResponse implements Response {
 		this.templateEngine = templateEngine;
 	}
 
+	/**
+	 * Closes this response, any further use of it fails with an IllegalStateException. It is called when an
+	 * asynchronous request is completed, so a late write from another thread doesn't reach the Servlet response after
+	 * the container recycles it.
+	 */
+	public void close() {
+		this.closed = true;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Helper method. Retrieves the Servlet response checking that this response is not closed.
+	 *
+	 * @return the underlying Servlet response.
+	 * @throws IllegalStateException if this response was closed.
+	 */
+	private HttpServletResponse response() throws IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("The response was already completed");
+		}
+
+		return response;
+	}
+
 	@Override
 	public int getStatus() {
-		return response.getStatus();
+		return response().getStatus();
 	}
 
 	@Override
 	public Response status(int status) {
-		response.setStatus(status);
+		response().setStatus(status);
 		return this;
 	}
 
 	@Override
 	public Response badRequest() {
-		response.setStatus(Response.BAD_REQUEST);
+		response().setStatus(Response.BAD_REQUEST);
 		return this;
 	}
 
 	@Override
 	public Response unauthorized() {
-		response.setStatus(Response.UNAUTHORIZED);
+		response().setStatus(Response.UNAUTHORIZED);
 		return this;
 	}
 
 	@Override
 	public Response notFound() {
-		response.setStatus(Response.NOT_FOUND);
+		response().setStatus(Response.NOT_FOUND);
 		return this;
 	}
 
@@ -87,35 +128,35 @@ public class ServletResponse implements Response {
 
 	@Override
 	public Response conflict() {
-		response.setStatus(Response.CONFLICT);
+		response().setStatus(Response.CONFLICT);
 		return this;
 	}
 
 	@Override
 	public String getContentType() {
-		return response.getContentType();
+		return response().getContentType();
 	}
 
 	@Override
 	public Response contentType(String contentType) {
-		response.setContentType(contentType);
+		response().setContentType(contentType);
 		return this;
 	}
 
 	@Override
 	public String getHeader(String name) {
-		return response.getHeader(name);
+		return response().getHeader(name);
 	}
 
 	@Override
 	public Response setHeader(String name, String value) {
-		response.setHeader(name, value);
+		response().setHeader(name, value);
 		return this;
 	}
 
 	@Override
 	public Response setCookie(Cookie cookie) {
-		response.addCookie(map(cookie));
+		response().addCookie(map(cookie));
 		return this;
 	}
 
@@ -164,7 +205,7 @@ public class ServletResponse implements Response {
 	@Override
 	public Response write(String html) throws HttpException {
 		try {
-			response.getWriter().print(html);
+			response().getWriter().print(html);
 			this.written = true;
 			return this;
 		} catch (IOException e) {
@@ -174,37 +215,163 @@ public class ServletResponse implements Response {
 
 	@Override
 	public Response write(Asset asset) {
-		response.setBufferSize(10240);
-		response.setContentType(asset.getContentType());
-		response.setHeader("Content-Length", String.valueOf(asset.getLength()));
-		String contentDisposition = response.getHeader("Content-Disposition");
+		response().setBufferSize(BUFFER_SIZE);
+		String contentType = asset.getContentType();
+		if (contentType == null) {
+			contentType = ContentTypes.get(asset.getName());
+		}
+		if (contentType != null) {
+			response().setContentType(contentType);
+		}
+		response().setHeader("Content-Length", String.valueOf(asset.getLength()));
+		if (asset.getContentEncoding() != null) {
+			response().setHeader("Content-Encoding", asset.getContentEncoding());
+		}
+		String contentDisposition = response().getHeader("Content-Disposition");
 		if (contentDisposition == null || "".equals(contentDisposition.trim())) {
-			response.setHeader("Content-Disposition", "inline; filename=\"" + asset.getName() + "\"");
+			response().setHeader("Content-Disposition", "inline; filename=\"" + asset.getName() + "\"");
 		}
 
-		// prepare streams
-		BufferedInputStream input = null;
-		BufferedOutputStream output = null;
 		try {
-			// open streams
-			input = new BufferedInputStream(asset.getInputStream(), 10240);
-			output = new BufferedOutputStream(response.getOutputStream(), 10240);
+			OutputStream output = response().getOutputStream();
+
+			// let jetty send the content (writing a memory mapped buffer directly to the channel) instead of copying it
+			if (!written && output instanceof AbstractHttpConnection.Output) {
+				ByteBuffer buffer = asset.getBuffer();
+				Object content = buffer != null && buffer.isDirect() ? new DirectNIOBuffer(buffer, true) : asset.getInputStream();
+				try {
+					((AbstractHttpConnection.Output) output).sendContent(content);
+					this.written = true;
+					return this;
+				} catch (IllegalStateException e) {
+					// something was already written to the buffer, fallback to copying the asset
+					copy(content instanceof InputStream ? (InputStream) content : asset.getInputStream(), output);
+					return this;
+				}
+			}
 
-			// Write file contents to response.
-			byte[] buffer = new byte[10240];
-			int length;
-			while ((length = input.read(buffer)) > 0) {
+			copy(asset.getInputStream(), output);
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+
+		return this;
+	}
+
+	@Override
+	public Response write(byte[] bytes) throws HttpException {
+		Preconditions.notNull(bytes, "no bytes provided");
+		return write(bytes, 0, bytes.length, null);
+	}
+
+	@Override
+	public Response write(ByteBuffer buffer) throws HttpException {
+		Preconditions.notNull(buffer, "no buffer provided");
+
+		if (buffer.hasArray()) {
+			write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), null);
+			buffer.position(buffer.limit());
+			return this;
+		}
+
+		try {
+			OutputStream output = response().getOutputStream();
+
+			byte[] chunk = new byte[Math.min(buffer.remaining(), BUFFER_SIZE)];
+			while (buffer.hasRemaining()) {
+				int n = Math.min(chunk.length, buffer.remaining());
+				buffer.get(chunk, 0, n);
+				output.write(chunk, 0, n);
 				this.written = true;
-				output.write(buffer, 0, length);
 			}
 		} catch (IOException e) {
 			throw new HttpException(e);
+		}
+
+		return this;
+	}
+
+	@Override
+	public Response write(EncodedBody body) throws HttpException {
+		Preconditions.notNull(body, "no body provided");
+
+		if (body.getContentType() != null) {
+			response().setContentType(body.getContentType());
+		}
+
+		byte[] bytes = body.getBytes();
+		return write(bytes, 0, bytes.length, body.getContentLength());
+	}
+
+	/**
+	 * Helper method. Writes the bytes into the output stream of the response, setting the Content-Length header if
+	 * it is provided and nothing has been written.
+	 *
+	 * @param contentLength the value of the Content-Length header or null if the bytes may not be the whole body.
+	 */
+	private Response write(byte[] bytes, int offset, int length, String contentLength) throws HttpException {
+		try {
+			if (contentLength != null && !written) {
+				response().setHeader("Content-Length", contentLength);
+			}
+
+			response().getOutputStream().write(bytes, offset, length);
+			this.written = true;
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+
+		return this;
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws HttpException {
+		try {
+			OutputStream output = response().getOutputStream();
+			this.written = true;
+			return output;
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+	}
+
+	@Override
+	public Writer getWriter() throws HttpException {
+		try {
+			Writer writer = response().getWriter();
+			this.written = true;
+			return writer;
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+	}
+
+	@Override
+	public Response flush() throws HttpException {
+		try {
+			response().flushBuffer();
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Helper method. Copies the <code>input</code> into the <code>output</code> closing both streams.
+	 */
+	private void copy(InputStream input, OutputStream output) throws IOException {
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int length;
+			while ((length = input.read(buffer)) != -1) {
+				this.written = true;
+				output.write(buffer, 0, length);
+			}
 		} finally {
 			close(output);
 			close(input);
 		}
-
-		return this;
 	}
 
 	private static void close(Closeable resource) {
@@ -226,7 +393,7 @@ public class ServletResponse implements Response {
 		attributes.putAll(atts);
 
 		try {
-			templateEngine.render(templateName, attributes, response.getWriter());
+			templateEngine.render(templateName, attributes, response().getWriter());
 			this.written = true;
 		} catch (IOException e) {
 			throw new TemplateException(e);
@@ -237,7 +404,7 @@ public class ServletResponse implements Response {
 	@Override
 	public void redirect(String path) throws HttpException {
 		try {
-			response.sendRedirect(path);
+			response().sendRedirect(path);
 		} catch (IOException e) {
 			throw new HttpException(e);
 		}
@@ -247,4 +414,5 @@ public class ServletResponse implements Response {
 	public boolean isWritten() {
 		return written;
 	}
+
 }
@@ -1,17 +1,25 @@
 package com.elibom.jogger.http.servlet.multipart;
 
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.http.HttpServletRequest;
 
+import com.elibom.jogger.exception.RequestEntityTooLargeException;
 import com.elibom.jogger.http.FileItem;
+import com.elibom.jogger.http.HttpException;
+import com.elibom.jogger.http.Part;
 
 /**
  * Provides methods to check and parse multipart requests.
@@ -55,6 +63,46 @@ public class Multipart {
 	 */
 	public static final String MULTIPART_MIXED = "multipart/mixed";
 
+	/**
+	 * The default maximum size of a file that is held in memory.
+	 */
+	public static final int DEFAULT_SIZE_THRESHOLD = 10 * 1024;
+
+	/**
+	 * Files up to this size (in bytes) are held in memory, bigger ones are stored in temporary files.
+	 */
+	private int sizeThreshold = DEFAULT_SIZE_THRESHOLD;
+
+	/**
+	 * The maximum size (in bytes) of the body of a request, -1 if unlimited.
+	 */
+	private long maxRequestSize = -1;
+
+	/**
+	 * The maximum size (in bytes) of a part, -1 if unlimited.
+	 */
+	private long maxPartSize = -1;
+
+	/**
+	 * The maximum number of parts of a request, -1 if unlimited.
+	 */
+	private int maxParts = -1;
+
+	/**
+	 * The number of bytes read from the body of the requests.
+	 */
+	private final AtomicLong parsedBytes = new AtomicLong();
+
+	/**
+	 * The number of bytes of the requests that were rejected because they exceeded a limit.
+	 */
+	private final AtomicLong rejectedBytes = new AtomicLong();
+
+	/**
+	 * The number of requests that were rejected because they exceeded a limit.
+	 */
+	private final AtomicLong rejectedRequests = new AtomicLong();
+
 	/**
 	 * Tells if a request is multipart or not.
 	 *
@@ -89,119 +137,80 @@ public class Multipart {
 	 * 			request.
 	 */
 	public void parse(HttpServletRequest request, PartHandler partHandler) throws IOException, MultipartException {
-		if (!isMultipartContent(request)) {
-			throw new MultipartException("Not a multipart content. The HTTP method should be 'POST' and the " +
-					"Content-Type 'multipart/form-data' or 'multipart/mixed'.");
-		}
-
-		InputStream inputStream = request.getInputStream();
-
-		String contentType = request.getContentType();
-		String charEncoding = request.getCharacterEncoding();
+		PartIterator parts = new PartIterator(request);
 
-		byte[] boundary = getBoundary(contentType);
-		if (boundary == null) {
-			throw new MultipartException("the request was rejected because no multipart boundary was found");
-		}
-
-		// create a multipart reader
-		MultipartReader multipartReader = new MultipartReader(inputStream, boundary);
-		multipartReader.setHeaderEncoding(charEncoding);
-
-		String currentFieldName = null;
-		boolean skipPreamble = true;
-
-		for (;;) {
-			boolean nextPart;
-			if (skipPreamble) {
-				nextPart = multipartReader.skipPreamble();
+		Part part = parts.nextPart();
+		while (part != null) {
+			if (part.getFileName() == null) {
+				partHandler.handleFormItem(part.getName(), Streams.asString(part.getInputStream()));
 			} else {
-				nextPart = multipartReader.readBoundary();
-			}
-			if (!nextPart) {
-				if (currentFieldName == null) {
-					// outer multipart terminated -> no more data
-					return;
-				}
-				// inner multipart terminated -> return to parsing the outer
-				multipartReader.setBoundary(boundary);
-				currentFieldName = null;
-				continue;
+				partHandler.handleFileItem(part.getName(), createFileItem(part));
 			}
 
-			String headersString = multipartReader.readHeaders();
-			Map<String,String> headers = getHeadersMap(headersString);
-
-			if (currentFieldName == null) {
-
-				// we're parsing the outer multipart
-				String fieldName = getFieldName( headers.get(CONTENT_DISPOSITION) );
-				if (fieldName != null) {
-
-					String partContentType = headers.get(CONTENT_TYPE);
-					if (partContentType != null &&  partContentType.toLowerCase().startsWith(MULTIPART_MIXED)) {
-
-						// multiple files associated with this field name
-						currentFieldName = fieldName;
-						multipartReader.setBoundary( getBoundary(partContentType));
-						skipPreamble = true;
-
-						continue;
-					}
-
-					String fileName = getFileName( headers.get(CONTENT_DISPOSITION) );
-					if (fileName == null) {
-						// call the part handler
-						String value = Streams.asString( multipartReader.newInputStream() );
-						partHandler.handleFormItem(fieldName, value);
-					} else {
+			part = parts.nextPart();
+		}
+	}
 
-						// create the temp file
-						File tempFile = createTempFile(multipartReader);
+	/**
+	 * Retrieves an iterator that reads the parts of a multipart request as they are requested. Nothing is stored in
+	 * memory or in temporary files: the input stream of each part reads directly from the request, and it can only be
+	 * read until <code>hasNext()</code> or <code>next()</code> is called again. The iterator wraps any exception reading
+	 * the request in an {@link HttpException}.
+	 *
+	 * @param request the javax.servlet.http.HttpServletRequest that we are going to parse.
+	 *
+	 * @return an iterator of {@link Part} objects.
+	 * @throws IOException if there is a problem reading the request.
+	 * @throws MultipartException if the request is not multipart or has no boundary.
+	 */
+	public Iterator<Part> getParts(HttpServletRequest request) throws IOException, MultipartException {
+		return new PartIterator(request);
+	}
 
-						// call the part handler
-						FileItem fileItem = new FileItem(fieldName, fileName, partContentType, tempFile.length(), tempFile, headers);
-						partHandler.handleFileItem(fieldName, fileItem);
-					}
+	/**
+	 * Helper method. Reads the content of a part into memory or, if it is bigger than the size threshold, into a
+	 * temporary file.
+	 */
+	private FileItem createFileItem(Part part) throws IOException {
+		InputStream inputStream = part.getInputStream();
 
-					continue;
-				}
-			} else {
-				String fileName = getFileName( headers.get(CONTENT_DISPOSITION) );
-				String partContentType = headers.get(CONTENT_TYPE);
-				if (fileName != null) {
+		// read up to one byte more than the threshold to know if the part fits in memory
+		byte[] buffer = new byte[sizeThreshold + 1];
+		int length = 0;
+		int n = 0;
+		while (length < buffer.length && EOF != (n = inputStream.read(buffer, length, buffer.length - length))) {
+			length += n;
+		}
 
-					// create the temp file
-					File tempFile = createTempFile(multipartReader);
+		if (length <= sizeThreshold) {
+			byte[] content = new byte[length];
+			System.arraycopy(buffer, 0, content, 0, length);
 
-					// call the part handler
-					FileItem fileItem = new FileItem(currentFieldName, fileName, partContentType, tempFile.length(),
-							tempFile, headers);
-					partHandler.handleFileItem(currentFieldName, fileItem);
-					continue;
-				}
-			}
-			multipartReader.discardBodyData();
+			return new FileItem(part.getName(), part.getFileName(), part.getContentType(), content, part.getHeaders());
 		}
 
-	}
-
-	private File createTempFile(MultipartReader multipartReader) throws IOException {
 		File tempFile = File.createTempFile("com.elibom.jogger.file_", null);
 		FileOutputStream outputStream = null;
+		boolean success = false;
 		try {
 			outputStream = new FileOutputStream(tempFile);
-			copy( multipartReader.newInputStream(), outputStream );
+			outputStream.write(buffer, 0, length);
+			copy(inputStream, outputStream);
+			success = true;
 		} finally {
 			if (outputStream != null) {
 				try { outputStream.close(); } catch (Exception e) {}
 			}
+			if (!success) {
+				tempFile.delete();
+			}
 		}
 
-		return tempFile;
+		return new FileItem(part.getName(), part.getFileName(), part.getContentType(), tempFile.length(), tempFile,
+				part.getHeaders());
 	}
 
-	private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
+	private static final int DEFAULT_BUFFER_SIZE = 1024 * 8;
 	private static final int EOF = -1;
 
 	private long copy(InputStream input, OutputStream output) throws IOException {
@@ -215,6 +224,82 @@ public class Multipart {
 		return count;
 	}
 
+	public int getSizeThreshold() {
+		return sizeThreshold;
+	}
+
+	/**
+	 * Sets the maximum size of a file that is held in memory. Bigger files are stored in temporary files.
+	 *
+	 * @param sizeThreshold the size in bytes, 0 to store all the files in temporary files.
+	 */
+	public void setSizeThreshold(int sizeThreshold) {
+		this.sizeThreshold = sizeThreshold;
+	}
+
+	public long getMaxRequestSize() {
+		return maxRequestSize;
+	}
+
+	/**
+	 * Sets the maximum size of the body of a request. Requests with a bigger Content-Length are rejected before reading
+	 * the body; otherwise, they are rejected as soon as the limit is exceeded while reading the body.
+	 *
+	 * @param maxRequestSize the size in bytes or -1 if unlimited.
+	 */
+	public void setMaxRequestSize(long maxRequestSize) {
+		this.maxRequestSize = maxRequestSize;
+	}
+
+	public long getMaxPartSize() {
+		return maxPartSize;
+	}
+
+	/**
+	 * Sets the maximum size of a part (form field or file). The request is rejected as soon as the limit is exceeded
+	 * while reading the part, so the rest of the part is never stored.
+	 *
+	 * @param maxPartSize the size in bytes or -1 if unlimited.
+	 */
+	public void setMaxPartSize(long maxPartSize) {
+		this.maxPartSize = maxPartSize;
+	}
+
+	public int getMaxParts() {
+		return maxParts;
+	}
+
+	/**
+	 * Sets the maximum number of parts (form fields and files) of a request.
+	 *
+	 * @param maxParts the number of parts or -1 if unlimited.
+	 */
+	public void setMaxParts(int maxParts) {
+		this.maxParts = maxParts;
+	}
+
+	/**
+	 * @return the number of bytes that have been read from the body of the requests.
+	 */
+	public long getParsedBytes() {
+		return parsedBytes.get();
+	}
+
+	/**
+	 * @return the number of bytes of the requests that were rejected because they exceeded a limit: the Content-Length
+	 * if they were rejected before reading the body, or the bytes read until they were rejected.
+	 */
+	public long getRejectedBytes() {
+		return rejectedBytes.get();
+	}
+
+	/**
+	 * @return the number of requests that were rejected because they exceeded a limit.
+	 */
+	public long getRejectedRequests() {
+		return rejectedRequests.get();
+	}
+
 	/**
 	 * Retreives a map with the headers of a part.
 	 *
@@ -382,4 +467,311 @@ public class Multipart {
 		return fileName;
 	}
 
+	/**
+	 * Reads the parts of a multipart request one at a time. Parts of a nested multipart/mixed part (i.e. multiple files
+	 * associated with the same field) are returned as if they were parts of the request. The limits are checked while
+	 * reading, throwing a {@link RequestEntityTooLargeException} (even from the input stream of a part) as soon as one
+	 * is exceeded.
+	 */
+	private class PartIterator implements Iterator<Part> {
+
+		private final byte[] boundary;
+
+		private final MultipartReader multipartReader;
+
+		/**
+		 * The body of the request.
+		 */
+		private final LimitedInputStream body;
+
+		private int partCount = 0;
+
+		private boolean rejected = false;
+
+		/**
+		 * The name of the field while we are reading a nested multipart/mixed part, null otherwise.
+		 */
+		private String currentFieldName;
+
+		private boolean skipPreamble = true;
+
+		/**
+		 * The last part that was read, its content is skipped when the next part is read.
+		 */
+		private StreamPart current;
+
+		/**
+		 * The part that will be returned by next(), null if we haven't read it yet.
+		 */
+		private StreamPart next;
+
+		private boolean eof = false;
+
+		PartIterator(HttpServletRequest request) throws IOException, MultipartException {
+			if (!isMultipartContent(request)) {
+				throw new MultipartException("Not a multipart content. The HTTP method should be 'POST' and the " +
+						"Content-Type 'multipart/form-data' or 'multipart/mixed'.");
+			}
+
+			boundary = getBoundary(request.getContentType());
+			if (boundary == null) {
+				throw new MultipartException("the request was rejected because no multipart boundary was found");
+			}
+
+			int contentLength = request.getContentLength();
+			if (maxRequestSize >= 0 && contentLength > maxRequestSize) {
+				throw reject(contentLength, "the request size (" + contentLength + " bytes) exceeds the maximum of "
+						+ maxRequestSize + " bytes");
+			}
+
+			body = new LimitedInputStream(request.getInputStream(), maxRequestSize, this, true);
+			multipartReader = new MultipartReader(body, boundary);
+			multipartReader.setHeaderEncoding(request.getCharacterEncoding());
+		}
+
+		/**
+		 * Helper method. Updates the counters of the rejected requests and creates the exception that we throw.
+		 */
+		RequestEntityTooLargeException reject(long bytes, String message) {
+			if (!rejected) {
+				rejected = true;
+				rejectedRequests.incrementAndGet();
+				rejectedBytes.addAndGet(bytes);
+			}
+
+			return new RequestEntityTooLargeException(message);
+		}
+
+		/**
+		 * Helper method. Creates the part that is returned, checking the number of parts.
+		 */
+		private StreamPart newPart(String fieldName, String fileName, String contentType, Map<String,String> headers) {
+			partCount++;
+			if (maxParts >= 0 && partCount > maxParts) {
+				throw reject(body.count, "the request exceeds the maximum of " + maxParts + " parts");
+			}
+
+			MultipartReader.ItemInputStream itemInputStream = multipartReader.newInputStream();
+			return new StreamPart(fieldName, fileName, contentType, headers, itemInputStream,
+					new LimitedInputStream(itemInputStream, maxPartSize, this, false));
+		}
+
+		/**
+		 * Reads the next part, skipping the content of the previous one.
+		 *
+		 * @return the next part or null if there are no more parts.
+		 * @throws IOException if there is a problem reading the request.
+		 */
+		StreamPart nextPart() throws IOException {
+			if (current != null) {
+				current.inputStream.close();
+				current = null;
+			}
+
+			while (!eof) {
+				boolean nextPart;
+				if (skipPreamble) {
+					nextPart = multipartReader.skipPreamble();
+				} else {
+					nextPart = multipartReader.readBoundary();
+				}
+				skipPreamble = false;
+
+				if (!nextPart) {
+					if (currentFieldName == null) {
+						// outer multipart terminated -> no more data
+						eof = true;
+						return null;
+					}
+					// inner multipart terminated -> return to parsing the outer
+					multipartReader.setBoundary(boundary);
+					currentFieldName = null;
+					continue;
+				}
+
+				Map<String,String> headers = getHeadersMap(multipartReader.readHeaders());
+				String partContentType = headers.get(CONTENT_TYPE);
+
+				if (currentFieldName == null) {
+
+					// we're parsing the outer multipart
+					String fieldName = getFieldName( headers.get(CONTENT_DISPOSITION) );
+					if (fieldName != null) {
+
+						if (partContentType != null &&  partContentType.toLowerCase().startsWith(MULTIPART_MIXED)) {
+
+							// multiple files associated with this field name
+							currentFieldName = fieldName;
+							multipartReader.setBoundary( getBoundary(partContentType));
+							skipPreamble = true;
+
+							continue;
+						}
+
+						current = newPart(fieldName, getFileName( headers.get(CONTENT_DISPOSITION) ), partContentType,
+								headers);
+						return current;
+					}
+				} else {
+					String fileName = getFileName( headers.get(CONTENT_DISPOSITION) );
+					if (fileName != null) {
+						current = newPart(currentFieldName, fileName, partContentType, headers);
+						return current;
+					}
+				}
+				multipartReader.discardBodyData();
+			}
+
+			return null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && !eof) {
+				try {
+					next = nextPart();
+				} catch (IOException e) {
+					throw new HttpException(e);
+				}
+			}
+
+			return next != null;
+		}
+
+		@Override
+		public Part next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			Part part = next;
+			next = null;
+
+			return part;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+	/**
+	 * A part which content is read directly from the request.
+	 */
+	private static class StreamPart implements Part {
+
+		private final String name;
+
+		private final String fileName;
+
+		private final String contentType;
+
+		private final Map<String,String> headers;
+
+		/**
+		 * The stream of the part in the body of the request, closing it skips the rest of the part.
+		 */
+		private final MultipartReader.ItemInputStream inputStream;
+
+		/**
+		 * The stream that we return, it checks the size of the part.
+		 */
+		private final InputStream limitedInputStream;
+
+		StreamPart(String name, String fileName, String contentType, Map<String,String> headers,
+				MultipartReader.ItemInputStream inputStream, InputStream limitedInputStream) {
+			this.name = name;
+			this.fileName = fileName;
+			this.contentType = contentType;
+			this.headers = Collections.unmodifiableMap(headers);
+			this.inputStream = inputStream;
+			this.limitedInputStream = limitedInputStream;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String getFileName() {
+			return fileName;
+		}
+
+		@Override
+		public String getContentType() {
+			return contentType;
+		}
+
+		@Override
+		public Map<String,String> getHeaders() {
+			return headers;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return limitedInputStream;
+		}
+
+	}
+
+	/**
+	 * Counts the bytes that are read from a stream (the body of the request or a part), throwing a
+	 * {@link RequestEntityTooLargeException} if they exceed a limit.
+	 */
+	private class LimitedInputStream extends FilterInputStream {
+
+		private final long limit;
+
+		private final PartIterator partIterator;
+
+		/**
+		 * True if this is the body of the request, false if it is a part.
+		 */
+		private final boolean requestBody;
+
+		private long count = 0;
+
+		LimitedInputStream(InputStream in, long limit, PartIterator partIterator, boolean requestBody) {
+			super(in);
+			this.limit = limit;
+			this.partIterator = partIterator;
+			this.requestBody = requestBody;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != EOF) {
+				count(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count(n);
+			}
+			return n;
+		}
+
+		private void count(int n) {
+			count += n;
+			if (requestBody) {
+				parsedBytes.addAndGet(n);
+			}
+
+			if (limit >= 0 && count > limit) {
+				String message = requestBody ? "the request size" : "the size of a part";
+				throw partIterator.reject(partIterator.body.count, message + " exceeds the maximum of " + limit
+						+ " bytes");
+			}
+		}
+
+	}
+
 }
@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 
 /**
  * <p>
@@ -104,7 +105,7 @@ public class MultipartReader {
 	/**
 	 * The default length of the buffer used for processing a request.
 	 */
-	protected static final int DEFAULT_BUFSIZE = 4096;
+	protected static final int DEFAULT_BUFSIZE = 16384;
 
 	/**
 	 * A byte sequence that marks the end of <code>header-part</code> (<code>CRLFCRLF</code>).
@@ -146,6 +147,12 @@ public class MultipartReader {
 	 */
 	private byte[] boundary;
 
+	/**
+	 * The Boyer-Moore-Horspool skip table of the <code>boundary</code>: how far the search can move when the last byte
+	 * of the compared region has a given value. It must be computed again each time the boundary changes.
+	 */
+	private final int[] skipTable = new int[256];
+
 	/**
 	 * The length of the buffer used for processing the request.
 	 */
@@ -197,6 +204,7 @@ public class MultipartReader {
 		this.keepRegion = this.boundary.length;
 		System.arraycopy(BOUNDARY_PREFIX, 0, this.boundary, 0, BOUNDARY_PREFIX.length);
 		System.arraycopy(boundary, 0, this.boundary, BOUNDARY_PREFIX.length, boundary.length);
+		computeSkipTable();
 
 		head = 0;
 		tail = 0;
@@ -305,6 +313,7 @@ public class MultipartReader {
 		}
 
 		System.arraycopy(boundary, 0, this.boundary, BOUNDARY_PREFIX.length, boundary.length);
+		computeSkipTable();
 	}
 
 	/**
@@ -407,6 +416,7 @@ public class MultipartReader {
 		// first delimiter may be not preceded with a CRLF.
 		System.arraycopy(boundary, 2, boundary, 0, boundary.length - 2);
 		boundaryLength = boundary.length - 2;
+		computeSkipTable();
 		try {
 			// discard all data up to the delimiter.
 			discardBodyData();
@@ -421,6 +431,7 @@ public class MultipartReader {
 			boundaryLength = boundary.length;
 			boundary[0] = CR;
 			boundary[1] = LF;
+			computeSkipTable();
 		}
 	}
 
@@ -463,31 +474,42 @@ public class MultipartReader {
 		return -1;
 	}
 
+	/**
+	 * Computes the Boyer-Moore-Horspool skip table of the first <code>boundaryLength</code> bytes of the
+	 * <code>boundary</code>.
+	 */
+	private void computeSkipTable() {
+		Arrays.fill(skipTable, boundaryLength);
+		for (int i = 0; i < boundaryLength - 1; i++) {
+			skipTable[boundary[i] & 0xff] = boundaryLength - 1 - i;
+		}
+	}
+
 	/**
 	 * Searches for the <code>boundary</code> in the <code>buffer</code> region delimited by <code>head</code> and
-	 * <code>tail</code>.
+	 * <code>tail</code> using the Boyer-Moore-Horspool algorithm: the boundary is compared from its last byte and, on a
+	 * mismatch, the search moves ahead as many bytes as the skip table allows (usually the whole boundary length) instead
+	 * of one byte at a time.
 	 *
 	 * @return The position of the boundary found, counting from the beginning of the <code>buffer</code>, or
 	 *         <code>-1</code> if not found.
 	 */
 	protected int findSeparator() {
-		int first;
-		int match = 0;
-		int maxpos = tail - boundaryLength;
-		for (first = head; (first <= maxpos) && (match != boundaryLength); first++) {
-			first = findByte(boundary[0], first);
-			if (first == -1 || (first > maxpos)) {
-				return -1;
-			}
-			for (match = 1; match < boundaryLength; match++) {
-				if (buffer[first + match] != boundary[match]) {
-					break;
+		final int last = boundaryLength - 1;
+		final int maxpos = tail - boundaryLength;
+
+		int pos = head;
+		while (pos <= maxpos) {
+			int i = last;
+			while (buffer[pos + i] == boundary[i]) {
+				if (i == 0) {
+					return pos;
 				}
+				i--;
 			}
+			pos += skipTable[buffer[pos + last] & 0xff];
 		}
-		if (match == boundaryLength) {
-			return first - 1;
-		}
+
 		return -1;
 	}
 
@@ -0,0 +1,83 @@
+package com.elibom.jogger.middleware.router;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.elibom.jogger.middleware.router.interceptor.Action;
+import com.elibom.jogger.middleware.router.interceptor.Controller;
+
+/**
+ * Holds the annotations of a controller or an action. The annotations are retrieved once (when the {@link Route} is
+ * created), so interceptors can check them on each request with a map lookup.
+ *
+ * @author German Escobar
+ */
+class Annotations implements Controller, Action {
+
+	private final Map<Class<? extends Annotation>,Annotation> annotations;
+
+	private Annotations(Map<Class<? extends Annotation>,Annotation> annotations) {
+		this.annotations = annotations;
+	}
+
+	/**
+	 * Creates an {@link Annotations} object with the annotations of a class (including those inherited from
+	 * superclasses using the @Inherited meta-annotation).
+	 *
+	 * @param clazz the class from which we are retrieving the annotations.
+	 *
+	 * @return an {@link Annotations} object.
+	 */
+	public static Annotations of(Class<?> clazz) {
+		Map<Class<? extends Annotation>,Annotation> annotations = new HashMap<Class<? extends Annotation>,Annotation>();
+		put(annotations, clazz.getAnnotations());
+
+		return new Annotations(Collections.unmodifiableMap(annotations));
+	}
+
+	/**
+	 * Creates an {@link Annotations} object with the annotations of a method and the methods it overrides in its
+	 * superclasses. Annotations on methods are not inherited by default, so we need to handle this explicitly. If an
+	 * annotation is present in more than one method, the one closest to the <code>method</code> wins.
+	 *
+	 * @param method the method from which we are retrieving the annotations.
+	 *
+	 * @return an {@link Annotations} object.
+	 */
+	public static Annotations of(Method method) {
+		Map<Class<? extends Annotation>,Annotation> annotations = new HashMap<Class<? extends Annotation>,Annotation>();
+
+		Class<?> clazz = method.getDeclaringClass();
+		while (clazz != null) {
+			try {
+				Method m = clazz.getDeclaredMethod(method.getName(), method.getParameterTypes());
+				put(annotations, m.getAnnotations());
+			} catch (NoSuchMethodException e) {
+				// the method is not declared in this class, continue with the superclass
+			}
+			clazz = clazz.getSuperclass();
+		}
+
+		return new Annotations(Collections.unmodifiableMap(annotations));
+	}
+
+	/**
+	 * Helper method. Adds the annotations to the map unless they are already present.
+	 */
+	private static void put(Map<Class<? extends Annotation>,Annotation> map, Annotation[] annotations) {
+		for (Annotation annotation : annotations) {
+			if (!map.containsKey(annotation.annotationType())) {
+				map.put(annotation.annotationType(), annotation);
+			}
+		}
+	}
+
+	@Override
+	public <A extends Annotation> A getAnnotation(Class<A> annotationClass) {
+		return annotationClass.cast(annotations.get(annotationClass));
+	}
+
+}
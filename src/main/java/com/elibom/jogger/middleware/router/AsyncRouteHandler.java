@@ -0,0 +1,35 @@
+package com.elibom.jogger.middleware.router;
+
+import com.elibom.jogger.http.Deferred;
+import com.elibom.jogger.http.Request;
+import com.elibom.jogger.http.Response;
+
+/**
+ * The asynchronous version of {@link RouteHandler}. The request is suspended until the returned {@link Deferred} is
+ * done, so the server thread is not blocked while waiting (e.g. for a downstream service):
+ *
+ * <pre><code>
+ * 	router.get("/", new AsyncRouteHandler() {
+ * 		public Deferred handle(Request request, Response response) {
+ * 			Deferred deferred = new Deferred();
+ * 			// complete the deferred from another thread
+ * 			return deferred;
+ * 		}
+ * 	});
+ * </code></pre>
+ *
+ * @author German Escobar
+ */
+public interface AsyncRouteHandler {
+
+	/**
+	 * This method is called when an HTTP request matches the route for which this route handler is configured.
+	 *
+	 * @param request the Jogger HTTP request.
+	 * @param response the Jogger HTTP response.
+	 *
+	 * @return a {@link Deferred} that will complete the response or null if the response was already written.
+	 */
+	Deferred handle(Request request, Response response);
+
+}
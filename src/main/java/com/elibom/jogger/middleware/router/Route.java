@@ -1,8 +1,19 @@
 package com.elibom.jogger.middleware.router;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import com.elibom.jogger.http.Deferred;
 import com.elibom.jogger.http.Path;
+import com.elibom.jogger.http.Request;
+import com.elibom.jogger.http.Response;
+import com.elibom.jogger.middleware.router.interceptor.Action;
+import com.elibom.jogger.middleware.router.interceptor.Controller;
 import com.elibom.jogger.util.Preconditions;
 
 /**
@@ -30,6 +41,31 @@ public class Route {
 
 	private final Method action;
 
+	/**
+	 * The regular expression of the path, compiled when the route is created.
+	 */
+	private final Pattern pattern;
+
+	/**
+	 * The names of the path variables in the order they appear in the path.
+	 */
+	private final List<String> variables;
+
+	/**
+	 * Used to call the action, it is bound to the controller when the route is created.
+	 */
+	private final Invoker invoker;
+
+	/**
+	 * The annotations of the controller class, retrieved when the route is created.
+	 */
+	private final Annotations controllerAnnotations;
+
+	/**
+	 * The annotations of the action (including those of the methods it overrides), retrieved when the route is created.
+	 */
+	private final Annotations actionAnnotations;
+
 	public Route(HttpMethod httpMethod, String path, Object controller, Method action) {
 		Preconditions.notNull(httpMethod, "no httpMethod provided");
 		Preconditions.notNull(path, "no path provided");
@@ -40,6 +76,66 @@ public class Route {
 		this.path = Path.fixPath(path);
 		this.controller = controller;
 		this.action = action;
+
+		this.pattern = Pattern.compile(this.path.replaceAll(Path.VAR_REGEXP, Path.VAR_REPLACE), Pattern.CASE_INSENSITIVE);
+		this.variables = Collections.unmodifiableList(parseVariables(this.path));
+		this.invoker = bind(controller, action);
+
+		this.controllerAnnotations = Annotations.of(controller.getClass());
+		this.actionAnnotations = Annotations.of(action);
+	}
+
+	/**
+	 * Helper method. Creates the {@link Invoker} of the action. {@link RouteHandler} and {@link AsyncRouteHandler}
+	 * objects are called directly through the interface (which the JIT can inline). Other actions (i.e. controller
+	 * methods) are still called using reflection: a direct call would need <code>MethodHandle</code> or
+	 * <code>LambdaMetafactory</code>, which are not available in Java 6, or generating bytecode.
+	 *
+	 * @param controller the object that holds the action.
+	 * @param action the method that will be invoked.
+	 *
+	 * @return an {@link Invoker} implementation.
+	 */
+	private static Invoker bind(Object controller, Method action) {
+		if (controller instanceof RouteHandler && isRouteHandlerMethod(action)) {
+			return new RouteHandlerInvoker((RouteHandler) controller);
+		}
+		if (controller instanceof AsyncRouteHandler && isRouteHandlerMethod(action)) {
+			return new AsyncRouteHandlerInvoker((AsyncRouteHandler) controller);
+		}
+
+		try {
+			action.setAccessible(true);
+		} catch (SecurityException e) {
+			// we will try to invoke the method anyway
+		}
+
+		return new ReflectionInvoker(controller, action);
+	}
+
+	private static boolean isRouteHandlerMethod(Method method) {
+		Class<?>[] paramTypes = method.getParameterTypes();
+		return method.getName().equals("handle") && paramTypes.length == 2 && paramTypes[0].equals(Request.class)
+				&& paramTypes[1].equals(Response.class);
+	}
+
+	/**
+	 * Helper method. Retrieves all the variables defined in the path.
+	 *
+	 * @param path the route path as defined in the routes.config file.
+	 *
+	 * @return a List object with the names of the variables.
+	 */
+	private static List<String> parseVariables(String path) {
+		List<String> variables = new ArrayList<String>();
+
+		Matcher matcher = Pattern.compile(Path.VAR_REGEXP).matcher(path);
+		while (matcher.find()) {
+			// group(0) always stands for the entire expression and we only want what is inside the {}
+			variables.add(matcher.group(1));
+		}
+
+		return variables;
 	}
 
 	public HttpMethod getHttpMethod() {
@@ -58,4 +154,123 @@ public class Route {
 		return action;
 	}
 
+	/**
+	 * @return the annotations of the controller class.
+	 */
+	Controller getControllerAnnotations() {
+		return controllerAnnotations;
+	}
+
+	/**
+	 * @return the annotations of the action.
+	 */
+	Action getActionAnnotations() {
+		return actionAnnotations;
+	}
+
+	/**
+	 * Calls the action of this route.
+	 *
+	 * @param request the Jogger HTTP request.
+	 * @param response the Jogger HTTP response.
+	 *
+	 * @return the {@link Deferred} returned by an asynchronous action or null if the response was already written.
+	 * @throws Exception if the action throws an exception.
+	 */
+	public Deferred invoke(Request request, Response response) throws Exception {
+		return invoker.invoke(request, response);
+	}
+
+	/**
+	 * @return the compiled regular expression (case insensitive) that matches the path of this route; each path
+	 * variable is a capturing group.
+	 */
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * @return an unmodifiable List with the names of the path variables in the order they appear in the path.
+	 */
+	public List<String> getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Calls the action of a route.
+	 */
+	private interface Invoker {
+
+		Deferred invoke(Request request, Response response) throws Exception;
+
+	}
+
+	/**
+	 * An {@link Invoker} that calls a {@link RouteHandler} directly.
+	 */
+	private static class RouteHandlerInvoker implements Invoker {
+
+		private final RouteHandler handler;
+
+		public RouteHandlerInvoker(RouteHandler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public Deferred invoke(Request request, Response response) {
+			handler.handle(request, response);
+			return null;
+		}
+
+	}
+
+	/**
+	 * An {@link Invoker} that calls an {@link AsyncRouteHandler} directly.
+	 */
+	private static class AsyncRouteHandlerInvoker implements Invoker {
+
+		private final AsyncRouteHandler handler;
+
+		public AsyncRouteHandlerInvoker(AsyncRouteHandler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public Deferred invoke(Request request, Response response) {
+			return handler.handle(request, response);
+		}
+
+	}
+
+	/**
+	 * An {@link Invoker} that calls the action using reflection, the same way actions were called before routes were
+	 * bound.
+	 */
+	private static class ReflectionInvoker implements Invoker {
+
+		private final Object controller;
+
+		private final Method action;
+
+		public ReflectionInvoker(Object controller, Method action) {
+			this.controller = controller;
+			this.action = action;
+		}
+
+		@Override
+		public Deferred invoke(Request request, Response response) throws Exception {
+			try {
+				Object result = action.invoke(controller, request, response);
+				return result instanceof Deferred ? (Deferred) result : null;
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw (Exception) cause;
+			}
+		}
+
+	}
+
 }
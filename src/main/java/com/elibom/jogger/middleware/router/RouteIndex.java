@@ -0,0 +1,351 @@
+package com.elibom.jogger.middleware.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.elibom.jogger.http.Path;
+import com.elibom.jogger.middleware.router.Route.HttpMethod;
+
+/**
+ * A compiled index of routes used by the {@link RouterMiddleware} to find the route that matches a request. The routes
+ * of each HTTP method are stored in a tree of path segments with three types of nodes:
+ *
+ * <ul>
+ * 	<li><em>static</em>: a literal segment (e.g. "users"), matched ignoring case.</li>
+ * 	<li><em>variable</em>: a segment that is only a variable (e.g. "{userId}"), matches any non empty segment.</li>
+ * 	<li><em>pattern</em>: any other segment (e.g. "{name}.json"), matched with a regular expression that is compiled
+ * 	when the index is built.</li>
+ * </ul>
+ *
+ * The index is immutable and is rebuilt by the {@link RouterMiddleware} when the routes change, so finding a route
+ * depends on the length of the path instead of the number of routes and doesn't compile regular expressions. If more
+ * than one route matches a path, the one that was added first wins (as if the routes were checked in order).
+ *
+ * @author German Escobar
+ */
+class RouteIndex {
+
+	/**
+	 * The regular expression characters that make a segment a pattern segment.
+	 */
+	static final String REGEXP_CHARS = "\\.[]()*+?^$|{}";
+
+	private static final Pattern VAR_PATTERN = Pattern.compile(Path.VAR_REGEXP);
+
+	/**
+	 * The root node of each HTTP method.
+	 */
+	private final Map<HttpMethod,Node> trees = new EnumMap<HttpMethod,Node>(HttpMethod.class);
+
+	/**
+	 * The version of the routes used to build this index (see {@link VersionedList#getVersion()}).
+	 */
+	private final int version;
+
+	/**
+	 * Constructor. Builds the index from the <code>routes</code>; the order of the list is used to decide which route
+	 * wins when more than one matches a path.
+	 *
+	 * @param routes the routes to be indexed.
+	 * @param version the version of the routes, read before calling this constructor.
+	 */
+	public RouteIndex(List<Route> routes, int version) {
+		int order = 0;
+		for (Route route : routes) {
+			add(route, order++);
+		}
+		this.version = version;
+	}
+
+	/**
+	 * Helper method. Adds a route to the tree of its HTTP method.
+	 *
+	 * @param route the route to be added.
+	 * @param order the position of the route in the list of routes.
+	 */
+	private void add(Route route, int order) {
+		Node node = trees.get(route.getHttpMethod());
+		if (node == null) {
+			node = new Node();
+			trees.put(route.getHttpMethod(), node);
+		}
+
+		node.minOrder = Math.min(node.minOrder, order);
+
+		for (String segment : split(route.getPath())) {
+			node = node.child(segment);
+			node.minOrder = Math.min(node.minOrder, order);
+		}
+
+		// only the first route of a node can be matched
+		if (node.route == null) {
+			node.route = route;
+			node.order = order;
+		}
+	}
+
+	/**
+	 * Retrieves the route that matches the <code>httpMethod</code> and <code>path</code>.
+	 *
+	 * @param httpMethod the HTTP method of the request (case insensitive).
+	 * @param path the path of the request, it must start with a slash and must not end with one.
+	 *
+	 * @return a {@link Match} object or null if no route matches.
+	 */
+	public Match find(String httpMethod, String path) {
+		Node root = trees.get(toHttpMethod(httpMethod));
+		if (root == null) {
+			return null;
+		}
+
+		Search search = new Search(split(path));
+		search.visit(root, 0);
+
+		if (search.best == null) {
+			return null;
+		}
+
+		return new Match(search.best.route, search.values);
+	}
+
+	/**
+	 * @return the version of the routes that were used to build this index.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	private static HttpMethod toHttpMethod(String httpMethod) {
+		for (HttpMethod m : HttpMethod.values()) {
+			if (m.name().equalsIgnoreCase(httpMethod)) {
+				return m;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Helper method. Splits a path into its segments, the root path ("/") has no segments.
+	 */
+	private static String[] split(String path) {
+		if (path.length() <= 1) {
+			return new String[0];
+		}
+
+		return path.substring(1).split("/", -1);
+	}
+
+	private static boolean isStatic(String segment) {
+		for (int i=0; i < segment.length(); i++) {
+			if (REGEXP_CHARS.indexOf(segment.charAt(i)) != -1) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Helper method. Tells if a segment can be the value of a path variable (i.e. it is not empty and has none of the
+	 * characters excluded by {@link Path#VAR_REPLACE}).
+	 */
+	private static boolean isVariableValue(String segment) {
+		return segment.length() > 0 && segment.indexOf('#') == -1 && segment.indexOf('?') == -1;
+	}
+
+	private static String lowerCase(String segment) {
+		return segment.toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * The result of a successful search in the index.
+	 */
+	static class Match {
+
+		private final Route route;
+
+		private final Map<String,String> pathVariables;
+
+		Match(Route route, List<String> values) {
+			this.route = route;
+
+			List<String> names = route.getVariables();
+			if (names.isEmpty()) {
+				this.pathVariables = Collections.emptyMap();
+			} else {
+				Map<String,String> variables = new HashMap<String,String>();
+				for (int i=0; i < names.size(); i++) {
+					variables.put(names.get(i), values.get(i));
+				}
+				this.pathVariables = variables;
+			}
+		}
+
+		public Route getRoute() {
+			return route;
+		}
+
+		/**
+		 * @return the path variables captured while searching for the route.
+		 */
+		public Map<String,String> getPathVariables() {
+			return pathVariables;
+		}
+
+	}
+
+	/**
+	 * A node of the tree. Each node represents a segment of the path and holds the first route that ends in it (if any).
+	 */
+	private static class Node {
+
+		private Map<String,Node> statics;
+
+		private Node variable;
+
+		private List<PatternNode> patterns;
+
+		private Route route;
+
+		private int order = Integer.MAX_VALUE;
+
+		/**
+		 * The lowest order of the routes in this node or its descendants, used to skip branches that can't improve the
+		 * current match.
+		 */
+		private int minOrder = Integer.MAX_VALUE;
+
+		/**
+		 * Retrieves (or creates) the child node for the <code>segment</code>.
+		 */
+		Node child(String segment) {
+			if (isStatic(segment)) {
+				if (statics == null) {
+					statics = new HashMap<String,Node>();
+				}
+
+				String key = lowerCase(segment);
+				Node child = statics.get(key);
+				if (child == null) {
+					child = new Node();
+					statics.put(key, child);
+				}
+				return child;
+			}
+
+			if (VAR_PATTERN.matcher(segment).matches()) {
+				if (variable == null) {
+					variable = new Node();
+				}
+				return variable;
+			}
+
+			if (patterns == null) {
+				patterns = new ArrayList<PatternNode>();
+			}
+
+			for (PatternNode p : patterns) {
+				if (p.segment.equals(segment)) {
+					return p;
+				}
+			}
+
+			PatternNode child = new PatternNode(segment);
+			patterns.add(child);
+			return child;
+		}
+
+	}
+
+	/**
+	 * A node that matches a segment using a regular expression.
+	 */
+	private static class PatternNode extends Node {
+
+		private final String segment;
+
+		private final Pattern pattern;
+
+		PatternNode(String segment) {
+			this.segment = segment;
+			this.pattern = Pattern.compile(segment.replaceAll(Path.VAR_REGEXP, Path.VAR_REPLACE), Pattern.CASE_INSENSITIVE);
+		}
+
+	}
+
+	/**
+	 * Holds the state of a search. The tree is traversed depth first keeping the values of the variables in a stack
+	 * and the matching route with the lowest order.
+	 */
+	private static class Search {
+
+		private final String[] segments;
+
+		private final List<String> stack = new ArrayList<String>();
+
+		private Node best;
+
+		private List<String> values;
+
+		Search(String[] segments) {
+			this.segments = segments;
+		}
+
+		void visit(Node node, int index) {
+			if (best != null && node.minOrder >= best.order) {
+				return;
+			}
+
+			if (index == segments.length) {
+				if (node.route != null) {
+					best = node;
+					values = new ArrayList<String>(stack);
+				}
+				return;
+			}
+
+			String segment = segments[index];
+
+			if (node.statics != null) {
+				Node child = node.statics.get(lowerCase(segment));
+				if (child != null) {
+					visit(child, index + 1);
+				}
+			}
+
+			if (node.variable != null && isVariableValue(segment)) {
+				stack.add(segment);
+				visit(node.variable, index + 1);
+				stack.remove(stack.size() - 1);
+			}
+
+			if (node.patterns != null) {
+				for (PatternNode p : node.patterns) {
+					Matcher matcher = p.pattern.matcher(segment);
+					if (matcher.matches()) {
+						int groups = matcher.groupCount();
+						for (int i=1; i <= groups; i++) {
+							stack.add(matcher.group(i));
+						}
+
+						visit(p, index + 1);
+
+						for (int i=0; i < groups; i++) {
+							stack.remove(stack.size() - 1);
+						}
+					}
+				}
+			}
+		}
+
+	}
+
+}
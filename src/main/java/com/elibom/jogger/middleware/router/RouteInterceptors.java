@@ -0,0 +1,196 @@
+package com.elibom.jogger.middleware.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.elibom.jogger.middleware.router.interceptor.Interceptor;
+import com.elibom.jogger.middleware.router.interceptor.InterceptorEntry;
+
+/**
+ * Holds the interceptors of a {@link Route}. The paths of each {@link InterceptorEntry} are checked against the path of
+ * the route when this object is created, so the interceptors of a request can be retrieved without matching paths. Only
+ * the entries whose result depends on the value of a path variable (e.g. the "/users/1" path for the "/users/{id}"
+ * route) are checked with the path of the request.
+ *
+ * @author German Escobar
+ */
+class RouteInterceptors {
+
+	/**
+	 * The version of the interceptor entries used to create this object (see {@link VersionedList#getVersion()}).
+	 */
+	private final int version;
+
+	/**
+	 * The entries that apply to the route (or might apply, see {@link #conditional}).
+	 */
+	private final InterceptorEntry[] entries;
+
+	/**
+	 * Tells if the entry in the same position of {@link #entries} has to be checked against the path of the request.
+	 */
+	private final boolean[] conditional;
+
+	/**
+	 * The interceptors of the route when none of the entries is conditional, null otherwise.
+	 */
+	private final List<Interceptor> interceptors;
+
+	/**
+	 * Constructor. Resolves the interceptors of the <code>route</code>.
+	 *
+	 * @param route the route for which we are resolving the interceptors.
+	 * @param interceptorEntries all the interceptors of the {@link RouterMiddleware}.
+	 * @param version the version of the interceptor entries, read before calling this constructor.
+	 */
+	public RouteInterceptors(Route route, List<InterceptorEntry> interceptorEntries, int version) {
+		List<InterceptorEntry> matching = new ArrayList<InterceptorEntry>();
+		List<Boolean> conditionals = new ArrayList<Boolean>();
+
+		for (InterceptorEntry entry : interceptorEntries) {
+			Match match = match(route, entry);
+			if (match != Match.NEVER) {
+				matching.add(entry);
+				conditionals.add(match == Match.DEPENDS);
+			}
+		}
+
+		this.version = version;
+		this.entries = matching.toArray(new InterceptorEntry[matching.size()]);
+		this.conditional = new boolean[entries.length];
+
+		boolean anyConditional = false;
+		for (int i=0; i < conditional.length; i++) {
+			conditional[i] = conditionals.get(i);
+			anyConditional |= conditional[i];
+		}
+
+		if (anyConditional) {
+			this.interceptors = null;
+		} else {
+			List<Interceptor> list = new ArrayList<Interceptor>(entries.length);
+			for (InterceptorEntry entry : entries) {
+				list.add(entry.getInterceptor());
+			}
+			this.interceptors = Collections.unmodifiableList(list);
+		}
+	}
+
+	/**
+	 * Retrieves the interceptors that have to be executed for a request that matched the route.
+	 *
+	 * @param path the path of the request.
+	 *
+	 * @return an unmodifiable list of {@link Interceptor} objects.
+	 */
+	public List<Interceptor> get(String path) {
+		if (interceptors != null) {
+			return interceptors;
+		}
+
+		List<Interceptor> ret = new ArrayList<Interceptor>(entries.length);
+		for (int i=0; i < entries.length; i++) {
+			if (!conditional[i] || entries[i].matches(path)) {
+				ret.add(entries[i].getInterceptor());
+			}
+		}
+
+		return Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * @return the version of the interceptor entries that were used to create this object.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	private enum Match {
+		ALWAYS,
+		NEVER,
+		DEPENDS
+	}
+
+	/**
+	 * Helper method. Checks if an entry matches all the paths of a route, none of them, or if it depends on the values of
+	 * the path variables.
+	 */
+	private static Match match(Route route, InterceptorEntry entry) {
+		String[] paths = entry.getPaths();
+		if (paths.length == 0) {
+			return Match.ALWAYS;
+		}
+
+		Match ret = Match.NEVER;
+		for (String pattern : paths) {
+			Match match = match(route, pattern);
+			if (match == Match.ALWAYS) {
+				return Match.ALWAYS;
+			}
+			if (match == Match.DEPENDS) {
+				ret = Match.DEPENDS;
+			}
+		}
+
+		return ret;
+	}
+
+	private static Match match(Route route, String pattern) {
+		String routePath = route.getPath();
+		int firstSpecial = indexOfSpecialChar(routePath, true);
+
+		// without variables (or regular expressions), the route only matches paths equal to its path (ignoring case)
+		if (firstSpecial == -1) {
+			return InterceptorEntry.matches(pattern, routePath) ? Match.ALWAYS : Match.NEVER;
+		}
+
+		if (InterceptorEntry.isPrefix(pattern)) {
+			String prefix = InterceptorEntry.getPrefix(pattern);
+			String literal = routePath.substring(0, firstSpecial);
+
+			if (literal.length() > prefix.length()) {
+				// the prefix is covered by the literal part of the route path
+				boolean matches = literal.regionMatches(true, 0, prefix, 0, prefix.length()) && literal.charAt(prefix.length()) == '/';
+				return matches ? Match.ALWAYS : Match.NEVER;
+			}
+
+			return prefix.regionMatches(true, 0, literal, 0, literal.length()) ? Match.DEPENDS : Match.NEVER;
+		}
+
+		if (InterceptorEntry.isExtension(pattern)) {
+			String extension = InterceptorEntry.getExtension(pattern);
+			String tail = routePath.substring(indexOfSpecialChar(routePath, false) + 1);
+
+			if (tail.regionMatches(true, tail.length() - extension.length(), extension, 0, extension.length())) {
+				return Match.ALWAYS;
+			}
+
+			// the end of the extension might be in the tail and the rest in the value of the variable
+			return extension.regionMatches(true, extension.length() - tail.length(), tail, 0, tail.length()) ? Match.DEPENDS
+					: Match.NEVER;
+		}
+
+		return route.getPattern().matcher(pattern).matches() ? Match.DEPENDS : Match.NEVER;
+	}
+
+	/**
+	 * Helper method. Retrieves the position of the first (or last) variable or regular expression character of a path.
+	 *
+	 * @return the position of the char or -1 if the path has none.
+	 */
+	private static int indexOfSpecialChar(String path, boolean first) {
+		int ret = -1;
+		for (int i=0; i < path.length(); i++) {
+			if (RouteIndex.REGEXP_CHARS.indexOf(path.charAt(i)) != -1) {
+				ret = i;
+				if (first) {
+					break;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+}
@@ -1,16 +1,16 @@
 package com.elibom.jogger.middleware.router;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.elibom.jogger.Middleware;
 import com.elibom.jogger.MiddlewareChain;
+import com.elibom.jogger.http.Deferred;
 import com.elibom.jogger.http.Path;
 import com.elibom.jogger.http.Request;
 import com.elibom.jogger.http.Response;
@@ -33,26 +33,43 @@ public class RouterMiddleware implements Middleware {
 	/**
 	 * The list of routes.
 	 */
-	private List<Route> routes = new CopyOnWriteArrayList<Route>();
+	private VersionedList<Route> routes = new VersionedList<Route>(new CopyOnWriteArrayList<Route>());
+
+	/**
+	 * The compiled version of the routes used to match requests. It is rebuilt when the routes change.
+	 */
+	private volatile RouteIndex routeIndex;
 
 	/**
 	 * The list of interceptors.
 	 */
-	private List<InterceptorEntry> interceptors = new CopyOnWriteArrayList<InterceptorEntry>();
+	private VersionedList<InterceptorEntry> interceptors = new VersionedList<InterceptorEntry>(
+			new CopyOnWriteArrayList<InterceptorEntry>());
+
+	/**
+	 * The interceptors of each route, rebuilt when the interceptors change and cleared when the routes change.
+	 */
+	private final ConcurrentMap<Route,RouteInterceptors> routeInterceptors = new ConcurrentHashMap<Route,RouteInterceptors>();
 	
 	@Override
 	public void handle(Request request, Response response, MiddlewareChain chain) throws Exception {
-		Route route = getRoute(request.getMethod(), request.getPath());
-		if (route == null) {
+		RouteIndex.Match match = getRoute(request.getMethod(), request.getPath());
+		if (match == null) {
 			chain.next();
 			return;
 		}
 		
-		request.setRoute(route);
+		Route route = match.getRoute();
+		if (request.getPath().indexOf('%') == -1) {
+			request.setRoute(route, match.getPathVariables());
+		} else {
+			// the path variables were captured from the decoded path, let the request extract them from the raw path
+			request.setRoute(route);
+		}
 		response.status(Response.OK);
 		
 		// load the interceptors of the request
-		List<Interceptor> requestInterceptors = getInterceptors(request.getPath());
+		List<Interceptor> requestInterceptors = getInterceptors(route, request.getPath());
 
 		// execute the controller
 		ControllerExecutor controllerExecutor = new ControllerExecutor(route, request, response, requestInterceptors);
@@ -60,67 +77,45 @@ public class RouterMiddleware implements Middleware {
 	}
 	
 	/**
-	 * Returns a list of interceptors that match a path
+	 * Returns the list of interceptors of a route that match a path. The interceptors of each route are resolved the first
+	 * time the route is matched and are cached until the interceptors change.
 	 *
-	 * @param path
+	 * @param route the route that matched the request.
+	 * @param path the path of the request.
+	 * 
 	 * @return a list of {@link Interceptor} objects.
 	 */
-	private List<Interceptor> getInterceptors(String path) {
-		List<Interceptor> ret = new ArrayList<Interceptor>();
-
-		for (InterceptorEntry entry : getInterceptors()) {
-			if (matches(path, entry.getPaths())) {
-				ret.add(entry.getInterceptor());
-			}
-		}
-
-		return ret;
-	}
-
-	/**
-	 * Helper method. Checks if the <code>path</code> is in the array of <code>paths</code>.
-	 *
-	 * @param path the path we want to check.
-	 * @param paths the paths to match.
-	 *
-	 * @return true if the <code>path</code> matches the <code>paths</code> (at least one), false otherwise.
-	 */
-	private boolean matches(String path, String... paths) {
-		if (paths.length == 0) {
-			return true;
-		}
+	private List<Interceptor> getInterceptors(Route route, String path) {
+		VersionedList<InterceptorEntry> interceptors = this.interceptors;
 
-		for (String p : paths) {
-			/* TODO we should use the same mechanism servlets use to match paths */
-			if (p.equalsIgnoreCase(path)) {
-				return true;
-			}
+		RouteInterceptors ret = routeInterceptors.get(route);
+		if (ret == null || ret.getVersion() != interceptors.getVersion()) {
+			ret = new RouteInterceptors(route, interceptors, interceptors.getVersion());
+			routeInterceptors.put(route, ret);
 		}
 
-		return false;
+		return ret.get(path);
 	}
 	
 	/**
-	 * Retrieves the {@link Route} that matches the specified <code>httpMethod</code> and <code>path</code>.
+	 * Retrieves the {@link Route} (and the path variables) that matches the specified <code>httpMethod</code> and <code>path</code>.
 	 *
 	 * @param httpMethod the HTTP method to match. Should not be null or empty.
 	 * @param path the path to match. Should not be null but can be empty (which is interpreted as /)
 	 *
-	 * @return a {@link Route} object that matches the arguments or null if no route matches.
+	 * @return a {@link RouteIndex.Match} object with the route that matches the arguments and its path variables, or
+	 * null if no route matches.
 	 */
-	private Route getRoute(String httpMethod, String path) {
+	private RouteIndex.Match getRoute(String httpMethod, String path) {
 		Preconditions.notEmpty(httpMethod, "no httpMethod provided.");
 		Preconditions.notNull(path, "no path provided.");
 
 		String cleanPath = parsePath(path);
-
-		for (Route route : routes) {
-			if (matchesPath(route.getPath(), cleanPath) && route.getHttpMethod().toString().equalsIgnoreCase(httpMethod)) {
-				return route;
-			}
+		if (cleanPath == null) {
+			return null;
 		}
 
-		return null;
+		return getRouteIndex().find(httpMethod, cleanPath);
 	}
 	
 	private String parsePath(String path) {
@@ -135,16 +130,25 @@ public class RouterMiddleware implements Middleware {
 	}
 
 	/**
-	 * Helper method. Tells if the the HTTP path matches the route path.
+	 * Helper method. Retrieves the {@link RouteIndex}, building it if the routes have changed since it was last built.
+	 * Notice that we check the version of the routes in case the list was modified directly (i.e. using
+	 * {@link #getRoutes()}).
 	 *
-	 * @param routePath the path defined for the route.
-	 * @param pathToMatch the path from the HTTP request.
-	 *
-	 * @return true if the path matches, false otherwise.
+	 * @return the {@link RouteIndex} of the current routes.
 	 */
-	private boolean matchesPath(String routePath, String pathToMatch) {
-		routePath = routePath.replaceAll(Path.VAR_REGEXP, Path.VAR_REPLACE);
-		return pathToMatch.matches("(?i)" + routePath);
+	private RouteIndex getRouteIndex() {
+		VersionedList<Route> routes = this.routes;
+
+		RouteIndex index = routeIndex;
+		if (index == null || index.getVersion() != routes.getVersion()) {
+			index = new RouteIndex(routes, routes.getVersion());
+			routeIndex = index;
+
+			// the interceptors of the replaced or removed routes are not needed anymore
+			routeInterceptors.clear();
+		}
+
+		return index;
 	}
 	
 	public List<Route> getRoutes() {
@@ -153,7 +157,9 @@ public class RouterMiddleware implements Middleware {
 
 	public void setRoutes(List<Route> routes) {
 		Preconditions.notNull(routes, "no routes provided");
-		this.routes = routes;
+		this.routes = new VersionedList<Route>(routes);
+		this.routeIndex = null;
+		this.routeInterceptors.clear();
 	}
 	
 	/**
@@ -199,7 +205,6 @@ public class RouterMiddleware implements Middleware {
 					+ "respectively");
 		}
 
-		method.setAccessible(true); // to access methods from anonymous classes
 		routes.add(new Route(httpMethod, path, controller, method));
 	}
 	
@@ -218,6 +223,22 @@ public class RouterMiddleware implements Middleware {
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * Creates a {@link Route} object and adds it to the routes list. It will respond to the GET HTTP method and the
+	 * specified <code>path</code> invoking the {@link AsyncRouteHandler} object.
+	 *
+	 * @param path the path to which this route will respond.
+	 * @param handler the object that will be invoked when the route matches.
+	 */
+	public void get(String path, AsyncRouteHandler handler) {
+		try {
+			addRoute(HttpMethod.GET, path, handler, "handle");
+		} catch (NoSuchMethodException e) {
+			// shouldn't happen unless we change the name of the method in AsyncRouteHandler
+			throw new RuntimeException(e);
+		}
+	}
 	
 	/**
 	 * Creates a {@link Route} object and adds it to the routes list. It will respond to the POST HTTP method and the
@@ -234,6 +255,22 @@ public class RouterMiddleware implements Middleware {
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * Creates a {@link Route} object and adds it to the routes list. It will respond to the POST HTTP method and the
+	 * specified <code>path</code> invoking the {@link AsyncRouteHandler} object.
+	 *
+	 * @param path the path to which this route will respond.
+	 * @param handler the object that will be invoked when the route matches.
+	 */
+	public void post(String path, AsyncRouteHandler handler) {
+		try {
+			addRoute(HttpMethod.POST, path, handler, "handle");
+		} catch (NoSuchMethodException e) {
+			// shouldn't happen unless we change the name of the method in AsyncRouteHandler
+			throw new RuntimeException(e);
+		}
+	}
 	
 	/**
 	 * Creates a {@link Route} object and adds it to the routes list. It will respond to the PUT HTTP method and the
@@ -250,6 +287,22 @@ public class RouterMiddleware implements Middleware {
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * Creates a {@link Route} object and adds it to the routes list. It will respond to the PUT HTTP method and the
+	 * specified <code>path</code> invoking the {@link AsyncRouteHandler} object.
+	 *
+	 * @param path the path to which this route will respond.
+	 * @param handler the object that will be invoked when the route matches.
+	 */
+	public void put(String path, AsyncRouteHandler handler) {
+		try {
+			addRoute(HttpMethod.PUT, path, handler, "handle");
+		} catch (NoSuchMethodException e) {
+			// shouldn't happen unless we change the name of the method in AsyncRouteHandler
+			throw new RuntimeException(e);
+		}
+	}
 	
 	/**
 	 * Creates a {@link Route} object and adds it to the routes list. It will respond to the DELETE HTTP method and the
@@ -266,6 +319,22 @@ public class RouterMiddleware implements Middleware {
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * Creates a {@link Route} object and adds it to the routes list. It will respond to the DELETE HTTP method and the
+	 * specified <code>path</code> invoking the {@link AsyncRouteHandler} object.
+	 *
+	 * @param path the path to which this route will respond.
+	 * @param handler the object that will be invoked when the route matches.
+	 */
+	public void delete(String path, AsyncRouteHandler handler) {
+		try {
+			addRoute(HttpMethod.DELETE, path, handler, "handle");
+		} catch (NoSuchMethodException e) {
+			// shouldn't happen unless we change the name of the method in AsyncRouteHandler
+			throw new RuntimeException(e);
+		}
+	}
 	
 	public List<InterceptorEntry> getInterceptors() {
 		return interceptors;
@@ -273,7 +342,8 @@ public class RouterMiddleware implements Middleware {
 
 	public void setInterceptors(List<InterceptorEntry> interceptors) {
 		Preconditions.notNull(interceptors, "no interceptors provided");
-		this.interceptors = interceptors;
+		this.interceptors = new VersionedList<InterceptorEntry>(interceptors);
+		this.routeInterceptors.clear();
 	}
 
 	/**
@@ -281,11 +351,13 @@ public class RouterMiddleware implements Middleware {
 	 * <code>paths</code>.
 	 *
 	 * @param interceptor the interceptor object to be added.
-	 * @param paths the paths in which this interceptor will be invoked, an empty array to respond to all paths.
+	 * @param paths the paths in which this interceptor will be invoked, an empty array to respond to all paths. Paths
+	 * can be exact (e.g. "/users/new"), a prefix (e.g. "/users/*") or an extension (e.g. "*.json").
 	 */
 	public void addInterceptor(Interceptor interceptor, String... paths) {
 		Preconditions.notNull(interceptor, "no interceptor provided");
 		interceptors.add(new InterceptorEntry(interceptor, paths));
+		routeInterceptors.clear();
 	}
 	
 	/**
@@ -327,15 +399,11 @@ public class RouterMiddleware implements Middleware {
 			// if we finished executing all the interceptors, call the controller method
 			if (index == interceptors.size()) {
 
-				Object controller = route.getController();
-				Method method = route.getAction();
-
-				try {
-					method.invoke(controller, request, response);
-				} catch (InvocationTargetException e) {
-					throw (Exception) e.getCause();
+				// an asynchronous action suspends the request until the deferred is done
+				Deferred deferred = route.invoke(request, response);
+				if (deferred != null) {
+					request.startAsync(deferred);
 				}
-
 				return;
 			}
 
@@ -349,54 +417,12 @@ public class RouterMiddleware implements Middleware {
 
 		@Override
 		public Controller getController() {
-			// create and return a new instance of the Controller class
-			return new Controller() {
-				public <A extends Annotation> A getAnnotation(Class<A> annotation) {
-					return route.getController().getClass().getAnnotation(annotation);
-				}
-			};
+			return route.getControllerAnnotations();
 		}
 
 		@Override
 		public Action getAction() {
-			// create and return a new instance of the Action class
-			return new Action() {
-				public <A extends Annotation> A getAnnotation(Class<A> annotationClass) {
-					return findAnnotation(route.getAction(), annotationClass);
-				}
-
-				/**
-				 * Helper method. Tries to find the annotation in the method or its super methods. Annotations on
-				 * methods are not inherited by default, so we need to handle this explicitly.
-				 *
-				 * @param method the method from which we want to find the annotation.
-				 * @param annotationClass the class of the annotation we are searching for.
-				 *
-				 * @return the annotation or null if not found.
-				 */
-				private <A extends Annotation> A findAnnotation(Method method, Class<A> annotationClass) {
-					A annotation = method.getAnnotation(annotationClass);
-					if (annotation != null) {
-						return annotation;
-					}
-
-					Method superMethod = getSuperMethod(method);
-					if (superMethod != null) {
-						return findAnnotation(superMethod, annotationClass);
-					}
-
-					return null;
-				}
-
-				private Method getSuperMethod(Method method) {
-					Class<?> superClass = method.getDeclaringClass().getSuperclass();
-					try {
-						return superClass.getDeclaredMethod(method.getName(), method.getParameterTypes());
-					} catch (NoSuchMethodException e) {
-						return null;
-					}
-				}
-			};
+			return route.getActionAnnotations();
 		}
 	}
 }
\ No newline at end of file
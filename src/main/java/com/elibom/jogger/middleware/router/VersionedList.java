@@ -0,0 +1,177 @@
+package com.elibom.jogger.middleware.router;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A list that delegates to another one and increments a version every time it is modified. It is used by the
+ * {@link RouterMiddleware} to know when the objects it builds from its lists (e.g. the {@link RouteIndex}) are stale,
+ * even if the lists are modified directly (i.e. using {@link RouterMiddleware#getRoutes()}).
+ *
+ * Notice that modifications made directly to the delegate list are not tracked.
+ *
+ * @author German Escobar
+ */
+class VersionedList<E> extends AbstractList<E> {
+
+	private final List<E> list;
+
+	private final AtomicInteger version = new AtomicInteger();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param list the list to which this object delegates.
+	 */
+	public VersionedList(List<E> list) {
+		this.list = list;
+	}
+
+	/**
+	 * @return a number that changes every time this list is modified. Read it before iterating the list so that a
+	 * modification made while iterating is detected.
+	 */
+	public int getVersion() {
+		return version.get();
+	}
+
+	@Override
+	public E get(int index) {
+		return list.get(index);
+	}
+
+	@Override
+	public int size() {
+		return list.size();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return list.contains(o);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return list.indexOf(o);
+	}
+
+	@Override
+	public E set(int index, E element) {
+		try {
+			return list.set(index, element);
+		} finally {
+			version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public boolean add(E e) {
+		try {
+			return list.add(e);
+		} finally {
+			version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void add(int index, E element) {
+		try {
+			list.add(index, element);
+		} finally {
+			version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		try {
+			return list.addAll(c);
+		} finally {
+			version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends E> c) {
+		try {
+			return list.addAll(index, c);
+		} finally {
+			version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public E remove(int index) {
+		try {
+			return list.remove(index);
+		} finally {
+			version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		try {
+			return list.remove(o);
+		} finally {
+			version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		try {
+			return list.removeAll(c);
+		} finally {
+			version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		try {
+			return list.retainAll(c);
+		} finally {
+			version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void clear() {
+		try {
+			list.clear();
+		} finally {
+			version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		final Iterator<E> iterator = list.iterator();
+
+		return new Iterator<E>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public E next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				try {
+					iterator.remove();
+				} finally {
+					version.incrementAndGet();
+				}
+			}
+		};
+	}
+
+}
@@ -15,6 +15,30 @@ import com.elibom.jogger.http.Response;
  *
  * Interceptors <em>must be thread-safe</em> as Jogger only uses one instance for all the requests.
  *
+ * <p>If the action is asynchronous (i.e. it returns a {@link com.elibom.jogger.http.Deferred}), the
+ * {@link InterceptorExecution#proceed()} method returns as soon as the action returns, before the response is written.
+ * Interceptors that need to run after the response is completed must opt in by adding a listener to the deferred:</p>
+ *
+ * <pre><code>
+ * 	public void intercept(Request request, Response response, InterceptorExecution execution) throws Exception {
+ * 		final long start = System.currentTimeMillis();
+ * 		execution.proceed();
+ *
+ * 		if (request.getDeferred() != null) {
+ * 			request.getDeferred().addListener(new Deferred.Listener() {
+ * 				public void onComplete(Exception failure) {
+ * 					log(System.currentTimeMillis() - start);
+ * 				}
+ * 			});
+ * 		} else {
+ * 			log(System.currentTimeMillis() - start);
+ * 		}
+ * 	}
+ * </code></pre>
+ *
+ * The listeners of the interceptors are called before the exception handler and an exception thrown by a listener is
+ * handled as if the action had thrown it.
+ *
  * @author German Escobar
  */
 public interface Interceptor {
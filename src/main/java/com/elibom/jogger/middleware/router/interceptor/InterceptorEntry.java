@@ -1,7 +1,17 @@
 package com.elibom.jogger.middleware.router.interceptor;
 
 /**
- * Helper class. Represents a interceptor entry (i.e. an interceptor and the matching paths).
+ * Helper class. Represents a interceptor entry (i.e. an interceptor and the matching paths). Paths are matched using the
+ * same mechanism servlets use (ignoring case):
+ *
+ * <ul>
+ * 	<li><em>Exact match</em>: "/users/new" only matches that path.</li>
+ * 	<li><em>Path prefix</em>: "/users/*" matches "/users" and any path that starts with "/users/". "/*" matches any
+ * 	path.</li>
+ * 	<li><em>Extension</em>: "*.json" matches any path that ends with ".json".</li>
+ * </ul>
+ *
+ * An entry with no paths matches any path.
  *
  * @author German Escobar
  */
@@ -24,4 +34,78 @@ public class InterceptorEntry {
 		return paths;
 	}
 
+	/**
+	 * Checks if the <code>path</code> matches at least one of the paths of this entry.
+	 *
+	 * @param path the path we want to check.
+	 *
+	 * @return true if the entry has no paths or if at least one of them matches, false otherwise.
+	 */
+	public boolean matches(String path) {
+		if (paths.length == 0) {
+			return true;
+		}
+
+		for (String pattern : paths) {
+			if (matches(pattern, path)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks if the <code>path</code> matches the <code>pattern</code> (an exact path, a path prefix or an extension).
+	 *
+	 * @param pattern the pattern as it was defined in the entry.
+	 * @param path the path we want to check.
+	 *
+	 * @return true if the path matches the pattern, false otherwise.
+	 */
+	public static boolean matches(String pattern, String path) {
+		if (isPrefix(pattern)) {
+			String prefix = getPrefix(pattern);
+			if (path.length() < prefix.length() || !path.regionMatches(true, 0, prefix, 0, prefix.length())) {
+				return false;
+			}
+			return path.length() == prefix.length() || path.charAt(prefix.length()) == '/';
+		}
+
+		if (isExtension(pattern)) {
+			String extension = getExtension(pattern);
+			return path.regionMatches(true, path.length() - extension.length(), extension, 0, extension.length());
+		}
+
+		return pattern.equalsIgnoreCase(path);
+	}
+
+	/**
+	 * @return true if the <code>pattern</code> is a path prefix (i.e. it ends with "/*").
+	 */
+	public static boolean isPrefix(String pattern) {
+		return pattern.endsWith("/*");
+	}
+
+	/**
+	 * @return the prefix of a path prefix pattern without the trailing "/*" (e.g. "/users" for "/users/*").
+	 */
+	public static String getPrefix(String pattern) {
+		return pattern.substring(0, pattern.length() - 2);
+	}
+
+	/**
+	 * @return true if the <code>pattern</code> is an extension (i.e. it starts with "*.").
+	 */
+	public static boolean isExtension(String pattern) {
+		return pattern.startsWith("*.");
+	}
+
+	/**
+	 * @return the extension of an extension pattern including the dot (e.g. ".json" for "*.json").
+	 */
+	public static String getExtension(String pattern) {
+		return pattern.substring(1);
+	}
+
 }
@@ -0,0 +1,126 @@
+package com.elibom.jogger.middleware.statik;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A range of bytes of an asset requested with the Range header (e.g. "bytes=0-499").
+ *
+ * @author German Escobar
+ */
+class ByteRange {
+
+	/**
+	 * The position of the first byte of the range.
+	 */
+	private final long start;
+
+	/**
+	 * The position of the last byte of the range (inclusive).
+	 */
+	private final long end;
+
+	public ByteRange(long start, long end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Parses the value of a Range header. Ranges that are not satisfiable (i.e. that start after the end of the asset)
+	 * are discarded.
+	 *
+	 * @param header the value of the Range header.
+	 * @param length the length of the asset.
+	 *
+	 * @return a list of {@link ByteRange} objects (empty if none of the ranges is satisfiable) or null if the header
+	 * should be ignored: it is not valid, or the ranges are not in ascending order or overlap.
+	 */
+	public static List<ByteRange> parse(String header, long length) {
+		String value = header.trim();
+		if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+			return null;
+		}
+
+		List<ByteRange> ranges = new ArrayList<ByteRange>();
+		for (String spec : value.substring(6).split(",")) {
+			spec = spec.trim();
+			if (spec.length() == 0) {
+				continue;
+			}
+
+			int dash = spec.indexOf('-');
+			if (dash == -1) {
+				return null;
+			}
+
+			try {
+				String first = spec.substring(0, dash).trim();
+				String last = spec.substring(dash + 1).trim();
+
+				if (first.length() == 0) {
+					// suffix range, e.g. "-500" are the last 500 bytes
+					long suffix = parseLong(last);
+					if (suffix > 0 && length > 0) {
+						ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+					}
+					continue;
+				}
+
+				long start = parseLong(first);
+				long end = last.length() == 0 ? Long.MAX_VALUE : parseLong(last);
+				if (end < start) {
+					return null;
+				}
+
+				if (start < length) {
+					ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+				}
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		// we don't serve ranges out of order or overlapping
+		for (int i=1; i < ranges.size(); i++) {
+			if (ranges.get(i).start <= ranges.get(i - 1).end) {
+				return null;
+			}
+		}
+
+		return Collections.unmodifiableList(ranges);
+	}
+
+	private static long parseLong(String value) throws NumberFormatException {
+		long ret = Long.parseLong(value);
+		if (ret < 0 || value.charAt(0) == '+') {
+			throw new NumberFormatException("invalid number: " + value);
+		}
+
+		return ret;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return the number of bytes of the range.
+	 */
+	public long getLength() {
+		return end - start + 1;
+	}
+
+	/**
+	 * @param length the length of the asset.
+	 * @return the value of the Content-Range header for this range (e.g. "bytes 0-499/1234").
+	 */
+	public String toContentRange(long length) {
+		return "bytes " + start + "-" + end + "/" + length;
+	}
+
+}
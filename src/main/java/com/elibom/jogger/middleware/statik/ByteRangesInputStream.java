@@ -0,0 +1,152 @@
+package com.elibom.jogger.middleware.statik;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import com.elibom.jogger.asset.RangeInputStream;
+
+/**
+ * Streams the body of a <code>multipart/byteranges</code> response. The input stream of the asset is read only once
+ * (that's why the ranges must be in ascending order and must not overlap), skipping the bytes between the ranges.
+ *
+ * @author German Escobar
+ */
+class ByteRangesInputStream extends InputStream {
+
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	/**
+	 * The input stream of the asset.
+	 */
+	private final InputStream source;
+
+	private final List<ByteRange> ranges;
+
+	/**
+	 * The headers of each part.
+	 */
+	private final byte[][] headers;
+
+	/**
+	 * The closing delimiter.
+	 */
+	private final byte[] trailer;
+
+	/**
+	 * The number of segments (headers, ranges or trailer) that we have started reading.
+	 */
+	private int segment = 0;
+
+	/**
+	 * The segment that we are reading.
+	 */
+	private InputStream current;
+
+	/**
+	 * The position of the source after reading the current segment.
+	 */
+	private long position = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param source the input stream of the asset.
+	 * @param ranges the ranges to send, in ascending order and without overlaps.
+	 * @param boundary the boundary that separates the parts.
+	 * @param contentType the content type of the asset.
+	 * @param length the length of the asset.
+	 */
+	public ByteRangesInputStream(InputStream source, List<ByteRange> ranges, String boundary, String contentType,
+			long length) {
+		this.source = source;
+		this.ranges = ranges;
+
+		this.headers = new byte[ranges.size()][];
+		for (int i=0; i < headers.length; i++) {
+			StringBuilder header = new StringBuilder();
+			header.append("\r\n--").append(boundary).append("\r\n");
+			if (contentType != null) {
+				header.append("Content-Type: ").append(contentType).append("\r\n");
+			}
+			header.append("Content-Range: ").append(ranges.get(i).toContentRange(length)).append("\r\n\r\n");
+
+			headers[i] = header.toString().getBytes(ISO_8859_1);
+		}
+
+		this.trailer = ("\r\n--" + boundary + "--\r\n").getBytes(ISO_8859_1);
+	}
+
+	/**
+	 * @return the number of bytes of the body.
+	 */
+	public long getLength() {
+		long length = trailer.length;
+		for (int i=0; i < headers.length; i++) {
+			length += headers[i].length + ranges.get(i).getLength();
+		}
+
+		return length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		int read = read(b, 0, 1);
+
+		return read == -1 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+
+		while (true) {
+			if (current == null && !nextSegment()) {
+				return -1;
+			}
+
+			int read = current.read(b, off, len);
+			if (read != -1) {
+				return read;
+			}
+
+			current = null;
+		}
+	}
+
+	/**
+	 * Helper method. Moves to the next segment: the headers of a part, its range or the trailer.
+	 *
+	 * @return true if there is another segment, false otherwise.
+	 */
+	private boolean nextSegment() {
+		int parts = ranges.size();
+		if (segment > parts * 2) {
+			return false;
+		}
+
+		if (segment == parts * 2) {
+			current = new ByteArrayInputStream(trailer);
+		} else if (segment % 2 == 0) {
+			current = new ByteArrayInputStream(headers[segment / 2]);
+		} else {
+			ByteRange range = ranges.get(segment / 2);
+			current = new RangeInputStream(source, range.getStart() - position, range.getLength());
+			position = range.getEnd() + 1;
+		}
+
+		segment++;
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		source.close();
+	}
+
+}
@@ -0,0 +1,224 @@
+package com.elibom.jogger.middleware.statik;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import com.elibom.jogger.asset.Asset;
+
+/**
+ * Compresses assets with gzip and keeps the compressed bytes in memory, so each asset is compressed only once (or
+ * again if its last modified date or length changes). The total size of the compressed bytes is bounded and the least
+ * recently used entries are evicted.
+ *
+ * @author German Escobar
+ */
+class CompressedAssetCache {
+
+	private static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * Assets smaller than this are not worth compressing.
+	 */
+	private static final long MIN_ASSET_SIZE = 256;
+
+	private static final long MAX_ASSET_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * The approximate memory used by an entry besides its compressed bytes. It also bounds the number of entries of
+	 * assets that are not worth compressing, which have no bytes.
+	 */
+	static final long ENTRY_OVERHEAD = 128;
+
+	/**
+	 * The maximum number of compressed bytes (plus the overhead of each entry) that we keep in memory.
+	 */
+	private final long maxSize;
+
+	private final LinkedHashMap<String,Entry> cache = new LinkedHashMap<String,Entry>(16, 0.75f, true);
+
+	private long size = 0;
+
+	public CompressedAssetCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public CompressedAssetCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Tells if an asset with the <code>contentType</code> is worth compressing (i.e. it is text).
+	 */
+	public static boolean isCompressible(String contentType) {
+		if (contentType == null) {
+			return false;
+		}
+
+		String type = contentType.toLowerCase(Locale.ENGLISH);
+		int index = type.indexOf(';');
+		if (index != -1) {
+			type = type.substring(0, index);
+		}
+		type = type.trim();
+
+		return type.startsWith("text/") || type.endsWith("+xml") || type.endsWith("+json")
+				|| type.equals("application/javascript") || type.equals("application/x-javascript")
+				|| type.equals("application/json") || type.equals("application/xml");
+	}
+
+	/**
+	 * Retrieves the gzip compressed version of an asset, compressing it if it is not in the cache or if it has changed.
+	 *
+	 * @param path the path of the asset, used as the key of the cache.
+	 * @param asset the asset to compress.
+	 *
+	 * @return the compressed asset or, if the asset is not worth compressing, an asset with the original content (the
+	 * <code>asset</code> itself if its input stream hasn't been read).
+	 * @throws IOException if there is a problem reading the asset.
+	 */
+	public Asset get(String path, Asset asset) throws IOException {
+		if (!isCompressible(asset.getContentType()) || asset.getLength() < MIN_ASSET_SIZE
+				|| asset.getLength() > MAX_ASSET_SIZE) {
+			return asset;
+		}
+
+		Entry entry = getEntry(path);
+		if (entry != null && entry.lastModified == asset.getLastModified() && entry.length == asset.getLength()) {
+			if (entry.bytes == null) {
+				return asset;
+			}
+
+			// we are not going to use the stream of the asset
+			if (asset.getFile() == null) {
+				close(asset.getInputStream());
+			}
+			return compressed(asset, entry.bytes);
+		}
+
+		byte[] content = read(asset);
+		byte[] bytes = compress(content);
+		putEntry(path, new Entry(bytes, asset.getLastModified(), asset.getLength()));
+
+		if (bytes != null) {
+			return compressed(asset, bytes);
+		}
+
+		if (asset.getFile() != null) {
+			return asset;
+		}
+
+		return asset.withEncoding(null, new Asset(new ByteArrayInputStream(content), null, null, content.length));
+	}
+
+	private Asset compressed(Asset asset, byte[] bytes) {
+		return asset.withEncoding("gzip", new Asset(new ByteArrayInputStream(bytes), null, null, bytes.length));
+	}
+
+	private synchronized Entry getEntry(String path) {
+		return cache.get(path);
+	}
+
+	private synchronized void putEntry(String path, Entry entry) {
+		Entry old = cache.put(path, entry);
+		if (old != null) {
+			size -= old.size();
+		}
+		size += entry.size();
+
+		Iterator<Map.Entry<String,Entry>> iterator = cache.entrySet().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			size -= iterator.next().getValue().size();
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Helper method. Reads the contents of the asset, closing its input stream.
+	 */
+	private byte[] read(Asset asset) throws IOException {
+		InputStream inputStream = asset.getInputStream();
+		try {
+			byte[] bytes = new byte[(int) asset.getLength()];
+
+			int offset = 0;
+			while (offset < bytes.length) {
+				int read = inputStream.read(bytes, offset, bytes.length - offset);
+				if (read == -1) {
+					throw new IOException("Unexpected end of asset " + asset.getName());
+				}
+				offset += read;
+			}
+
+			return bytes;
+		} finally {
+			close(inputStream);
+		}
+	}
+
+	/**
+	 * Helper method. Compresses the <code>content</code> with gzip.
+	 *
+	 * @return the compressed bytes or null if compressing doesn't reduce the size of the content.
+	 */
+	private byte[] compress(byte[] content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2);
+		GZIPOutputStream gzip = new GZIPOutputStream(out, 8192);
+		gzip.write(content);
+		gzip.close();
+
+		return out.size() < content.length ? out.toByteArray() : null;
+	}
+
+	private static void close(InputStream inputStream) {
+		if (inputStream != null) {
+			try {
+				inputStream.close();
+			} catch (IOException e) {}
+		}
+	}
+
+	/**
+	 * @return the number of compressed bytes held in memory plus the overhead of each entry.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the number of assets in the cache, including those that are not worth compressing.
+	 */
+	synchronized int getEntryCount() {
+		return cache.size();
+	}
+
+	/**
+	 * A compressed asset. If <code>bytes</code> is null, the asset is not worth compressing.
+	 */
+	private static class Entry {
+
+		private final byte[] bytes;
+
+		private final long lastModified;
+
+		private final long length;
+
+		Entry(byte[] bytes, long lastModified, long length) {
+			this.bytes = bytes;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		long size() {
+			return (bytes == null ? 0 : bytes.length) + ENTRY_OVERHEAD;
+		}
+
+	}
+
+}
@@ -1,17 +1,25 @@
 package com.elibom.jogger.middleware.statik;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLDecoder;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import com.elibom.jogger.Environment;
 import com.elibom.jogger.Middleware;
 import com.elibom.jogger.MiddlewareChain;
 import com.elibom.jogger.asset.Asset;
 import com.elibom.jogger.asset.AssetLoader;
+import com.elibom.jogger.asset.AssetManifest;
 import com.elibom.jogger.asset.FileAssetLoader;
+import com.elibom.jogger.asset.MappedAssetLoader;
+import com.elibom.jogger.http.Http;
+import com.elibom.jogger.http.HttpDate;
 import com.elibom.jogger.http.Request;
 import com.elibom.jogger.http.Response;
+import com.elibom.jogger.middleware.router.interceptor.InterceptorEntry;
 import com.elibom.jogger.util.Preconditions;
 
 /**
@@ -24,8 +32,20 @@ import com.elibom.jogger.util.Preconditions;
  *  <li>If the path matches but the method is not GET, a <strong>404 Not Found</strong> will be returned (i.e. it won't 
  *  recognized other HTTP method different to GET).</li>
  *  <li>If the asset is not found, a <strong>404 Not Found</strong> will be returned.</li>
- *  <li>If the asset hasn't been modified (i.e. using the If-Modified-Since header), a <strong>304 Not Modified</strong> will 
- *  be returned.</li>
+ *  <li>If the asset hasn't been modified (i.e. using the If-None-Match or If-Modified-Since headers), a <strong>304 Not 
+ *  Modified</strong> will be returned. The Last-Modified and ETag headers are sent with the asset; the entity tag is 
+ *  created from the last modified date and the length of the asset.</li>
+ *  <li>If the request has a Range header (and the If-Range header, if present, matches the asset), a <strong>206 Partial 
+ *  Content</strong> will be returned with the requested range or, if more than one range is requested, with a 
+ *  <code>multipart/byteranges</code> body. If none of the ranges is satisfiable, a <strong>416 Requested Range Not 
+ *  Satisfiable</strong> will be returned. Ranges that are not in ascending order or that overlap are ignored (i.e. the 
+ *  whole asset is returned).</li>
+ *  <li>If the client accepts it (i.e. using the Accept-Encoding header), a precompressed version of the asset (a file 
+ *  with the same name plus the ".br" or ".gz" extension) will be returned. Otherwise, text assets will be compressed with 
+ *  gzip; each asset is compressed once and the result is kept in memory.</li>
+ *  <li>The Cache-Control header is set using the policies added with {@link #addCacheControl(String, String...)}. If an 
+ *  {@link AssetManifest} is set, assets requested with a fingerprinted path (e.g. "app.3f9a1c2b.js") are cached forever.
+ *  </li>
  * </ol>
  * 
  * @author German Escobar
@@ -42,16 +62,61 @@ public class StaticMiddleware implements Middleware {
 	 */
 	private String prefix;
 
+	/**
+	 * The Cache-Control header of the assets requested with a fingerprinted path.
+	 */
+	private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+	/**
+	 * The minimum length of the files that are memory mapped when the assets are loaded from a directory.
+	 */
+	private static final long MAPPED_THRESHOLD = 64 * 1024;
+
+	/**
+	 * The encodings of the precompressed files we look for, in order of preference.
+	 */
+	private static final String[] PRECOMPRESSED_ENCODINGS = { "br", "gzip" };
+
+	/**
+	 * The extensions of the precompressed files, in the same order as {@link #PRECOMPRESSED_ENCODINGS}.
+	 */
+	private static final String[] PRECOMPRESSED_EXTENSIONS = { ".br", ".gz" };
+
+	/**
+	 * Tells if we should look for precompressed versions of the assets (e.g. "app.js.gz" for "app.js").
+	 */
+	private boolean precompressed = true;
+
+	/**
+	 * Holds the assets that we compress with gzip, null if we are not compressing assets.
+	 */
+	private CompressedAssetCache compressedAssets = new CompressedAssetCache();
+
+	/**
+	 * The Cache-Control policies, the first one that matches the path of an asset is used.
+	 */
+	private final List<CacheControlEntry> cacheControls = new CopyOnWriteArrayList<CacheControlEntry>();
+
+	/**
+	 * Used to resolve fingerprinted paths, null if we are not using fingerprinted paths.
+	 */
+	private AssetManifest manifest;
+
+	/**
+	 * Used to generate the boundaries of multipart/byteranges responses.
+	 */
+	private final Random random = new Random();
+
 	/**
 	 * Constructor. Creates a new instance with the provided path and with a {@link FileAssetLoader} as the 
-	 * {@link AssetLoader} implementation.
+	 * {@link AssetLoader} implementation (see {@link #createAssetLoader(String)}).
 	 * 
 	 * @param path the prefix used to match the request path; also the path where the static files are located in the file system. 
 	 */
 	public StaticMiddleware(String path) {
 		Preconditions.notNull(path, "no path provided.");
 		this.prefix = fixPrefix(path);
-		this.assetLoader = new FileAssetLoader(path);
+		this.assetLoader = createAssetLoader(path);
 	}
 	
 	/**
@@ -67,7 +132,8 @@ public class StaticMiddleware implements Middleware {
 	}
 	
 	/**
-	 * Constructor. Creates a new instance with a {@link FileAssetLoader} with the provided path, and the prefix.
+	 * Constructor. Creates a new instance with a {@link FileAssetLoader} with the provided path (see 
+	 * {@link #createAssetLoader(String)}), and the prefix.
 	 * 
 	 * @param path the path where the static files are located in the file system.
 	 * @param prefix the prefix used to match the request path
@@ -77,7 +143,26 @@ public class StaticMiddleware implements Middleware {
 		Preconditions.notNull(prefix, "no prefix provided.");
 		
 		this.prefix = fixPrefix(prefix);
-		this.assetLoader = new FileAssetLoader(path);
+		this.assetLoader = createAssetLoader(path);
+	}
+
+	/**
+	 * Helper method. Creates the {@link AssetLoader} of the files in the <code>path</code>. Files of 64 KB or more are 
+	 * memory mapped with a {@link MappedAssetLoader}, so they are written to the connection without being copied to 
+	 * the response buffer. In development, the files are not mapped as they are usually modified in place (which makes 
+	 * reading a mapped file fail).
+	 * 
+	 * @param path the path where the static files are located in the file system.
+	 * 
+	 * @return an {@link AssetLoader} implementation.
+	 */
+	private static AssetLoader createAssetLoader(String path) {
+		FileAssetLoader fileAssetLoader = new FileAssetLoader(path);
+		if (Environment.isDevelopment()) {
+			return fileAssetLoader;
+		}
+
+		return new MappedAssetLoader(fileAssetLoader, MAPPED_THRESHOLD);
 	}
 	
 	/**
@@ -111,22 +196,259 @@ public class StaticMiddleware implements Middleware {
 		
 		// load the asset
 		requestPath = requestPath.replaceFirst(prefix, "");
-		Asset asset = assetLoader.load(URLDecoder.decode(requestPath, "UTF-8"));
+		String assetPath = URLDecoder.decode(requestPath, "UTF-8");
+
+		// resolve fingerprinted paths (e.g. "app.3f9a1c2b.js")
+		String fingerprintedPath = null;
+		if (manifest != null) {
+			String path = manifest.getPath(assetPath);
+			if (path != null) {
+				fingerprintedPath = assetPath;
+				assetPath = path;
+			}
+		}
+
+		Asset asset = assetLoader.load(assetPath);
 		if (asset == null) {
 			chain.next();
 			return;
 		}
+
+		// the asset holds an open stream if it is not backed by a file (e.g. a jar entry), it is closed unless we write it
+		boolean written = false;
+		try {
+			written = serve(request, response, assetPath, fingerprintedPath, asset);
+		} finally {
+			if (!written) {
+				release(asset);
+			}
+		}
+	}
+
+	/**
+	 * Helper method. Sends the headers of the asset and writes it in the response, unless it hasn't been modified or the
+	 * requested range can't be satisfied.
+	 *
+	 * @return true if the asset (or a version of it) was written in the response, false otherwise.
+	 */
+	private boolean serve(Request request, Response response, String assetPath, String fingerprintedPath, Asset asset)
+			throws IOException {
+		String cacheControl = cacheControl(assetPath, fingerprintedPath, asset);
+		if (cacheControl != null) {
+			response.setHeader(Http.Headers.CACHE_CONTROL, cacheControl);
+		}
+
+		boolean compressible = compressedAssets != null && CompressedAssetCache.isCompressible(asset.getContentType());
+		if (compressible) {
+			response.setHeader(Http.Headers.VARY, Http.Headers.ACCEPT_ENCODING);
+		}
 		
+		if (asset.getLastModified() > 0) {
+			response.setHeader(Http.Headers.LAST_MODIFIED, HttpDate.format(asset.getLastModified()));
+		}
+
 		// check if asset has been modified
-		if (!assetHasBeenModified(request, asset)) {
+		String etag = etag(asset);
+		String notModifiedTag = notModifiedTag(request, asset, etag);
+		if (notModifiedTag != null) {
+			if (notModifiedTag.length() > 0) {
+				response.setHeader(Http.Headers.ETAG, notModifiedTag);
+			}
 			response.status(Response.NOT_MODIFIED);
-			return;
+			return false;
+		}
+
+		// serve a compressed version of the asset if the client accepts it
+		String acceptEncoding = request.getHeader(Http.Headers.ACCEPT_ENCODING);
+		if (acceptEncoding != null && asset.getContentEncoding() == null) {
+			asset = encode(assetPath, asset, acceptEncoding, response, compressible);
+		}
+
+		// each encoding of the asset has its own entity tag
+		if (etag != null && asset.getContentEncoding() != null) {
+			etag = etag.substring(0, etag.length() - 1) + "-" + asset.getContentEncoding() + "\"";
+		}
+		if (etag != null) {
+			response.setHeader(Http.Headers.ETAG, etag);
+		}
+
+		response.setHeader(Http.Headers.ACCEPT_RANGES, "bytes");
+
+		// check if a range was requested
+		String range = request.getHeader(Http.Headers.RANGE);
+		if (range != null && asset.getLength() >= 0 && ifRangeMatches(request, asset, etag)) {
+			List<ByteRange> ranges = ByteRange.parse(range, asset.getLength());
+			if (ranges != null) {
+				return writeRanges(response, asset, ranges);
+			}
 		}
 
 		response.status(Response.OK);
 		response.write(asset);
+		return true;
 	}
-	
+
+	/**
+	 * Helper method. Retrieves the value of the Cache-Control header for an asset: assets requested with a fingerprinted
+	 * path that is still current never change, otherwise the first policy that matches the path of the asset is used.
+	 *
+	 * @return the value of the Cache-Control header or null if there is none.
+	 */
+	private String cacheControl(String assetPath, String fingerprintedPath, Asset asset) {
+		if (fingerprintedPath != null && manifest.isCurrent(fingerprintedPath, asset)) {
+			return IMMUTABLE_CACHE_CONTROL;
+		}
+
+		String path = "/" + assetPath;
+		for (CacheControlEntry entry : cacheControls) {
+			if (entry.matches(path)) {
+				return entry.value;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Helper method. Retrieves the version of the asset to send: a precompressed version (i.e. the ".br" or ".gz" file
+	 * next to the asset), the asset compressed with gzip or the asset itself.
+	 */
+	private Asset encode(String assetPath, Asset asset, String acceptEncoding, Response response, boolean compressible)
+			throws IOException {
+		if (precompressed) {
+			for (int i=0; i < PRECOMPRESSED_ENCODINGS.length; i++) {
+				if (!acceptsEncoding(acceptEncoding, PRECOMPRESSED_ENCODINGS[i])) {
+					continue;
+				}
+
+				// ignore precompressed files that are older than the asset
+				Asset encoded = assetLoader.load(assetPath + PRECOMPRESSED_EXTENSIONS[i]);
+				if (encoded != null && encoded.getLastModified() >= asset.getLastModified()) {
+					if (!compressible) {
+						response.setHeader(Http.Headers.VARY, Http.Headers.ACCEPT_ENCODING);
+					}
+					release(asset);
+					return asset.withEncoding(PRECOMPRESSED_ENCODINGS[i], encoded);
+				}
+				if (encoded != null) {
+					release(encoded);
+				}
+			}
+		}
+
+		if (compressible && acceptsEncoding(acceptEncoding, "gzip")) {
+			return compressedAssets.get(assetPath, asset);
+		}
+
+		return asset;
+	}
+
+	/**
+	 * Helper method. Checks if the value of an Accept-Encoding header accepts the <code>encoding</code> (i.e. it is
+	 * listed, or the "*" wildcard is, without a zero quality value).
+	 */
+	static boolean acceptsEncoding(String acceptEncoding, String encoding) {
+		float quality = -1;
+		float wildcard = -1;
+
+		for (String token : acceptEncoding.split(",")) {
+			String[] parts = token.split(";");
+			String name = parts[0].trim();
+
+			float q = 1;
+			for (int i=1; i < parts.length; i++) {
+				String param = parts[i].trim();
+				if (param.startsWith("q=") || param.startsWith("Q=")) {
+					try {
+						q = Float.parseFloat(param.substring(2).trim());
+					} catch (NumberFormatException e) {
+						q = 0;
+					}
+				}
+			}
+
+			if (name.equalsIgnoreCase(encoding) || ("gzip".equals(encoding) && name.equalsIgnoreCase("x-gzip"))) {
+				quality = Math.max(quality, q);
+			} else if (name.equals("*")) {
+				wildcard = q;
+			}
+		}
+
+		return quality >= 0 ? quality > 0 : wildcard > 0;
+	}
+
+	/**
+	 * Helper method. Closes the input stream of an asset that is not going to be written. Assets backed by a file open a
+	 * new stream each time, so there is nothing to close.
+	 */
+	private static void release(Asset asset) {
+		if (asset.getFile() == null) {
+			close(asset.getInputStream());
+		}
+	}
+
+	private static void close(InputStream inputStream) {
+		if (inputStream != null) {
+			try {
+				inputStream.close();
+			} catch (IOException e) {}
+		}
+	}
+
+	/**
+	 * Helper method. Writes the <code>ranges</code> of the asset: a single part if there is only one range, a
+	 * <code>multipart/byteranges</code> body otherwise.
+	 *
+	 * @return true if the ranges were written, false if none of them can be satisfied.
+	 */
+	private boolean writeRanges(Response response, Asset asset, List<ByteRange> ranges) {
+		long length = asset.getLength();
+
+		if (ranges.isEmpty()) {
+			response.status(Response.REQUESTED_RANGE_NOT_SATISFIABLE);
+			response.setHeader(Http.Headers.CONTENT_RANGE, "bytes */" + length);
+
+			// the asset can be an encoded version of the one that was loaded
+			release(asset);
+			return false;
+		}
+
+		response.status(Response.PARTIAL_CONTENT);
+
+		if (ranges.size() == 1) {
+			ByteRange byteRange = ranges.get(0);
+			response.setHeader(Http.Headers.CONTENT_RANGE, byteRange.toContentRange(length));
+			response.write(asset.slice(byteRange.getStart(), byteRange.getLength()));
+			return true;
+		}
+
+		String boundary = Long.toHexString(random.nextLong());
+		ByteRangesInputStream body = new ByteRangesInputStream(asset.getInputStream(), ranges, boundary,
+				asset.getContentType(), length);
+		response.write(new Asset(body, asset.getName(), "multipart/byteranges; boundary=" + boundary, body.getLength(),
+				asset.getLastModified()));
+		return true;
+	}
+
+	/**
+	 * Helper method. Checks if the If-Range header (if present) matches the asset, in which case the ranges are served.
+	 * Entity tags are compared using the strong comparison function and dates must match the last modified date.
+	 */
+	private boolean ifRangeMatches(Request request, Asset asset, String etag) {
+		String ifRange = request.getHeader(Http.Headers.IF_RANGE);
+		if (ifRange == null) {
+			return true;
+		}
+
+		ifRange = ifRange.trim();
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			return ifRange.equals(etag);
+		}
+
+		long date = HttpDate.parse(ifRange);
+		return date != -1 && asset.getLastModified() > 0 && date / 1000 == asset.getLastModified() / 1000;
+	}
+
 	/**
 	 * Helper method. The request path shouldn't have a trailing slash.
 	 * 
@@ -137,17 +459,157 @@ public class StaticMiddleware implements Middleware {
 		return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
 	}
 
-	private boolean assetHasBeenModified(Request request, Asset asset) throws ParseException {
-		String ifModifiedSince = request.getHeader("If-Modified-Since");
-		if (ifModifiedSince != null) {
-			SimpleDateFormat sdf = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz");
-			Date dt = sdf.parse(ifModifiedSince);
-			if (dt.getTime() == asset.getLastModified()) {
-				return false;
+	/**
+	 * Helper method. Creates the entity tag of an asset from its last modified date and length, which change when the
+	 * asset is modified.
+	 *
+	 * @return the entity tag (e.g. "\"1459c8a1f80-22\"") or null if the last modified date or the length of the asset are
+	 * unknown.
+	 */
+	private String etag(Asset asset) {
+		if (asset.getLastModified() <= 0 || asset.getLength() < 0) {
+			return null;
+		}
+
+		return "\"" + Long.toHexString(asset.getLastModified()) + "-" + Long.toHexString(asset.getLength()) + "\"";
+	}
+
+	/**
+	 * Helper method. Checks the If-None-Match header or, if not present, the If-Modified-Since header of the request.
+	 * Entity tags are compared using the weak comparison function; the tags of the encoded versions of the asset (e.g.
+	 * "\"1459c8a1f80-22-gzip\"") also match.
+	 *
+	 * @return the entity tag to send with the 304 Not Modified response (an empty string if the asset has no entity tag),
+	 * or null if the asset has been modified.
+	 */
+	private String notModifiedTag(Request request, Asset asset, String etag) {
+		String ifNoneMatch = request.getHeader(Http.Headers.IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			if (etag == null) {
+				return null;
 			}
+
+			String prefix = etag.substring(0, etag.length() - 1) + "-";
+			for (String token : ifNoneMatch.split(",")) {
+				String tag = token.trim();
+				if (tag.equals("*")) {
+					return etag;
+				}
+
+				if (tag.startsWith("W/")) {
+					tag = tag.substring(2);
+				}
+				if (tag.equals(etag) || (tag.startsWith(prefix) && tag.endsWith("\""))) {
+					return tag;
+				}
+			}
+
+			return null;
 		}
-		
-		return true;
+
+		String ifModifiedSince = request.getHeader(Http.Headers.IF_MODIFIED_SINCE);
+		if (ifModifiedSince != null && asset.getLastModified() > 0) {
+			// HTTP dates don't have milliseconds
+			long date = HttpDate.parse(ifModifiedSince);
+			if (date != -1 && asset.getLastModified() / 1000 <= date / 1000) {
+				return etag == null ? "" : etag;
+			}
+		}
+
+		return null;
+	}
+
+	public boolean isPrecompressed() {
+		return precompressed;
+	}
+
+	/**
+	 * Sets whether we should look for precompressed versions of the assets (i.e. a file with the same name plus the
+	 * ".br" or ".gz" extension) when the client accepts the encoding.
+	 *
+	 * @param precompressed true to look for precompressed versions, false otherwise.
+	 */
+	public void setPrecompressed(boolean precompressed) {
+		this.precompressed = precompressed;
+	}
+
+	public boolean isCompress() {
+		return compressedAssets != null;
+	}
+
+	/**
+	 * Sets whether text assets (e.g. HTML, CSS, JavaScript) should be compressed with gzip when the client accepts it.
+	 * Each asset is compressed once and the result is kept in memory.
+	 *
+	 * @param compress true to compress the assets, false otherwise.
+	 */
+	public void setCompress(boolean compress) {
+		if (!compress) {
+			this.compressedAssets = null;
+		} else if (compressedAssets == null) {
+			this.compressedAssets = new CompressedAssetCache();
+		}
+	}
+
+	/**
+	 * Adds a Cache-Control policy. The paths are relative to the prefix of the middleware and can be exact paths (e.g.
+	 * "/index.html"), prefixes (e.g. "/images/*") or extensions (e.g. "*.css"). Policies are checked in the order they
+	 * were added and the first one that matches is used.
+	 *
+	 * @param value the value of the Cache-Control header (e.g. "public, max-age=3600").
+	 * @param paths the paths of the assets to which the policy applies; all the assets if no path is provided.
+	 */
+	public void addCacheControl(String value, String... paths) {
+		Preconditions.notEmpty(value, "no value provided");
+		cacheControls.add(new CacheControlEntry(value, paths));
+	}
+
+	public AssetLoader getAssetLoader() {
+		return assetLoader;
+	}
+
+	public AssetManifest getManifest() {
+		return manifest;
+	}
+
+	/**
+	 * Sets the manifest used to resolve fingerprinted paths. The assets requested with a fingerprinted path are sent with
+	 * the "public, max-age=31536000, immutable" Cache-Control header.
+	 *
+	 * @param manifest the manifest or null to disable fingerprinted paths.
+	 */
+	public void setManifest(AssetManifest manifest) {
+		this.manifest = manifest;
+	}
+
+	/**
+	 * A Cache-Control policy.
+	 */
+	private static class CacheControlEntry {
+
+		private final String value;
+
+		private final String[] paths;
+
+		CacheControlEntry(String value, String... paths) {
+			this.value = value;
+			this.paths = paths;
+		}
+
+		boolean matches(String path) {
+			if (paths.length == 0) {
+				return true;
+			}
+
+			for (String pattern : paths) {
+				if (InterceptorEntry.matches(pattern, path)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
 	}
 
 }
@@ -2,12 +2,16 @@ package com.elibom.jogger.test;
 
 import static com.elibom.jogger.http.Http.Headers.CONTENT_TYPE;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +19,8 @@ import com.elibom.jogger.Jogger;
 import com.elibom.jogger.http.AbstractRequest;
 import com.elibom.jogger.http.Cookie;
 import com.elibom.jogger.http.FileItem;
+import com.elibom.jogger.http.HttpException;
+import com.elibom.jogger.http.Part;
 import com.elibom.jogger.middleware.router.Route;
 import com.elibom.jogger.util.Preconditions;
 
@@ -118,6 +124,12 @@ public class MockRequest extends AbstractRequest {
 		return params.get(name);
 	}
 
+	@Override
+	public List<String> getParameterValues(String name) {
+		String value = params.get(name);
+		return value == null ? Collections.<String>emptyList() : Collections.singletonList(value);
+	}
+
 	public MockRequest addParameter(String name, String value) {
 		params.put(name, value);
 		return this;
@@ -201,6 +213,12 @@ public class MockRequest extends AbstractRequest {
 		return headers.get(name);
 	}
 
+	@Override
+	public List<String> getHeaderValues(String name) {
+		String value = headers.get(name);
+		return value == null ? Collections.<String>emptyList() : Collections.singletonList(value);
+	}
+
 	public MockRequest setHeader(String name, String value) {
 		headers.put(name, value);
 		return this;
@@ -218,6 +236,14 @@ public class MockRequest extends AbstractRequest {
 		return this;
 	}
 
+	/**
+	 * Returns the files that were added with {@link #addFile(File, String, String)} as parts.
+	 */
+	@Override
+	public Iterator<Part> getParts() {
+		return new ArrayList<Part>(files).iterator();
+	}
+
 	@Override
 	public BodyParser getBody() {
 		return new BodyParser() {
@@ -227,9 +253,22 @@ public class MockRequest extends AbstractRequest {
 				return body;
 			}
 
+			@Override
+			public byte[] asBytes() {
+				if (body == null) {
+					return new byte[0];
+				}
+
+				try {
+					return body.getBytes("UTF-8");
+				} catch (UnsupportedEncodingException e) {
+					throw new HttpException(e);
+				}
+			}
+
 			@Override
 			public InputStream asInputStream() {
-				return null;
+				return new ByteArrayInputStream(asBytes());
 			}
 
 		};
@@ -240,7 +279,7 @@ public class MockRequest extends AbstractRequest {
 		Preconditions.notNull(route, "no route provided.");
 		this.route = route;
 		
-		this.initPathVariables(route.getPath());
+		initPathVariables(route);
 	}
 
 	public MockRequest setBodyAsString(String body) {
@@ -1,13 +1,20 @@
 package com.elibom.jogger.test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.elibom.jogger.asset.Asset;
 import com.elibom.jogger.http.Cookie;
+import com.elibom.jogger.http.EncodedBody;
+import com.elibom.jogger.http.HttpException;
 import com.elibom.jogger.http.Response;
 import com.elibom.jogger.template.TemplateEngine;
 import com.elibom.jogger.template.TemplateException;
@@ -36,6 +43,17 @@ public class MockResponse implements Response {
 
 	private String output;
 
+	private byte[] outputBytes;
+
+	/**
+	 * Holds the bytes written to the stream returned by {@link #getOutputStream()} or {@link #getWriter()}.
+	 */
+	private ByteArrayOutputStream stream;
+
+	private PrintWriter writer;
+
+	private int flushCount = 0;
+
 	private Asset renderedAsset;
 
 	private String renderedTemplate;
@@ -148,6 +166,78 @@ public class MockResponse implements Response {
 		return this;
 	}
 
+	@Override
+	public Response write(byte[] bytes) {
+		return writeBytes(bytes);
+	}
+
+	@Override
+	public Response write(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+
+		return writeBytes(bytes);
+	}
+
+	@Override
+	public Response write(EncodedBody body) {
+		if (body.getContentType() != null) {
+			this.contentType = body.getContentType();
+		}
+		if (!written) {
+			headers.put("Content-Length", body.getContentLength());
+		}
+
+		return writeBytes(body.getBytes());
+	}
+
+	private Response writeBytes(byte[] bytes) {
+		if (outputBytes == null) {
+			this.outputBytes = bytes;
+		} else {
+			byte[] concat = Arrays.copyOf(outputBytes, outputBytes.length + bytes.length);
+			System.arraycopy(bytes, 0, concat, outputBytes.length, bytes.length);
+			this.outputBytes = concat;
+		}
+
+		this.written = true;
+		return this;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		if (stream == null) {
+			stream = new ByteArrayOutputStream();
+		}
+
+		this.written = true;
+		return stream;
+	}
+
+	@Override
+	public Writer getWriter() {
+		if (writer == null) {
+			try {
+				writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), "UTF-8"));
+			} catch (UnsupportedEncodingException e) {
+				throw new HttpException(e);
+			}
+		}
+
+		this.written = true;
+		return writer;
+	}
+
+	@Override
+	public Response flush() {
+		if (writer != null) {
+			writer.flush();
+		}
+
+		flushCount++;
+		return this;
+	}
+
 	@Override
 	public Response render(String templateName) throws TemplateException {
 		return render(templateName, new HashMap<String,Object>());
@@ -186,6 +276,35 @@ public class MockResponse implements Response {
 		return output;
 	}
 
+	/**
+	 * @return the bytes written with {@link #write(byte[])}, {@link #write(ByteBuffer)} or {@link #write(EncodedBody)}.
+	 */
+	public byte[] getOutputAsBytes() {
+		return outputBytes;
+	}
+
+	/**
+	 * @return the bytes written to the stream returned by {@link #getOutputStream()} or {@link #getWriter()}, null if
+	 * none of them was used.
+	 */
+	public byte[] getStreamedOutput() {
+		if (stream == null) {
+			return null;
+		}
+
+		if (writer != null) {
+			writer.flush();
+		}
+		return stream.toByteArray();
+	}
+
+	/**
+	 * @return the number of times {@link #flush()} was called.
+	 */
+	public int getFlushCount() {
+		return flushCount;
+	}
+
 	public String getRenderedTemplate() {
 		return renderedTemplate;
 	}
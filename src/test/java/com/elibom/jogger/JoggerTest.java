@@ -5,17 +5,28 @@ import com.elibom.jogger.Jogger;
 import com.elibom.jogger.MiddlewareChain;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import java.net.ConnectException;
 import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.client.fluent.Request;
+import org.apache.http.util.EntityUtils;
 import com.elibom.jogger.exception.NotFoundException;
+import com.elibom.jogger.http.Deferred;
 import com.elibom.jogger.http.Response;
+import com.elibom.jogger.middleware.router.AsyncRouteHandler;
+import com.elibom.jogger.middleware.router.RouterMiddleware;
+import com.elibom.jogger.test.MockRequest;
+import com.elibom.jogger.test.MockResponse;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -68,6 +79,259 @@ public class JoggerTest {
 		}
 	}
 	
+	@Test
+	public void shouldWriteBytesManyTimes() throws Exception {
+		Jogger app = new Jogger(new Middleware() {
+			@Override
+			public void handle(com.elibom.jogger.http.Request request, Response response, MiddlewareChain chain) {
+				response.status(Response.OK);
+				response.write("te".getBytes());
+				response.write("st".getBytes());
+			}
+		});
+		app.listen(27773);
+
+		try {
+			HttpResponse response = Request.Get("http://localhost:27773/").execute().returnResponse();
+			Assert.assertEquals(response.getStatusLine().getStatusCode(), 200);
+			Assert.assertEquals(EntityUtils.toString(response.getEntity()), "test");
+		} finally {
+			app.stop();
+		}
+	}
+
+	@Test
+	public void shouldCompleteAsyncRequest() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/", new AsyncRouteHandler() {
+			@Override
+			public Deferred handle(com.elibom.jogger.http.Request request, final Response response) {
+				final Deferred deferred = new Deferred();
+				new Thread(new Runnable() {
+					@Override
+					public void run() {
+						response.write("async");
+						deferred.complete();
+					}
+				}).start();
+
+				return deferred;
+			}
+		});
+
+		Jogger app = new Jogger(router);
+		app.listen(27773);
+
+		try {
+			HttpResponse response = Request.Get("http://localhost:27773/").execute().returnResponse();
+			Assert.assertEquals(response.getStatusLine().getStatusCode(), 200);
+			Assert.assertEquals(EntityUtils.toString(response.getEntity()), "async");
+		} finally {
+			app.stop();
+		}
+	}
+
+	@Test
+	public void shouldHandleAsyncException() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/", new AsyncRouteHandler() {
+			@Override
+			public Deferred handle(com.elibom.jogger.http.Request request, Response response) {
+				final Deferred deferred = new Deferred();
+				new Thread(new Runnable() {
+					@Override
+					public void run() {
+						deferred.fail(new RuntimeException());
+					}
+				}).start();
+
+				return deferred;
+			}
+		});
+
+		Jogger app = new Jogger(router);
+		app.listen(27773);
+
+		try {
+			HttpResponse response = Request.Get("http://localhost:27773/").execute().returnResponse();
+			Assert.assertEquals(response.getStatusLine().getStatusCode(), 500);
+		} finally {
+			app.stop();
+		}
+	}
+
+	@Test
+	public void shouldTimeoutAsyncRequest() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/", new AsyncRouteHandler() {
+			@Override
+			public Deferred handle(com.elibom.jogger.http.Request request, Response response) {
+				return new Deferred();
+			}
+		});
+
+		Jogger app = new Jogger(router);
+		app.setAsyncTimeout(200);
+		app.listen(27773);
+
+		try {
+			HttpResponse response = Request.Get("http://localhost:27773/").execute().returnResponse();
+			Assert.assertEquals(response.getStatusLine().getStatusCode(), 500);
+		} finally {
+			app.stop();
+		}
+	}
+
+	@Test
+	public void shouldCompleteAsyncRequestDoneBeforeActionReturns() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/ok", new AsyncRouteHandler() {
+			@Override
+			public Deferred handle(com.elibom.jogger.http.Request request, Response response) {
+				Deferred deferred = new Deferred();
+				response.write("done");
+				deferred.complete();
+				return deferred;
+			}
+		});
+		router.get("/fail", new AsyncRouteHandler() {
+			@Override
+			public Deferred handle(com.elibom.jogger.http.Request request, Response response) {
+				Deferred deferred = new Deferred();
+				deferred.fail(new IllegalStateException("failed"));
+				return deferred;
+			}
+		});
+
+		ExceptionHandler exceptionHandler = new ExceptionHandler() {
+			@Override
+			public void handle(Exception e, com.elibom.jogger.http.Request request, Response response) {
+				response.status(Response.CONFLICT).write("handled " + e.getMessage());
+			}
+		};
+
+		Jogger app = new Jogger(router);
+		app.setExceptionHandler(exceptionHandler);
+		app.listen(27773);
+
+		try {
+			HttpResponse response = Request.Get("http://localhost:27773/ok").execute().returnResponse();
+			Assert.assertEquals(response.getStatusLine().getStatusCode(), 200);
+			Assert.assertEquals(EntityUtils.toString(response.getEntity()), "done");
+
+			response = Request.Get("http://localhost:27773/fail").execute().returnResponse();
+			Assert.assertEquals(response.getStatusLine().getStatusCode(), Response.CONFLICT);
+			Assert.assertEquals(EntityUtils.toString(response.getEntity()), "handled failed");
+		} finally {
+			app.stop();
+		}
+	}
+
+	@Test
+	public void shouldRejectWritesAfterAsyncTimeout() throws Exception {
+		final CountDownLatch written = new CountDownLatch(1);
+		final AtomicReference<Exception> writeException = new AtomicReference<Exception>();
+
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/", new AsyncRouteHandler() {
+			@Override
+			public Deferred handle(com.elibom.jogger.http.Request request, final Response response) {
+				new Thread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							Thread.sleep(1000);
+							response.write("late");
+						} catch (Exception e) {
+							writeException.set(e);
+						} finally {
+							written.countDown();
+						}
+					}
+				}).start();
+
+				return new Deferred();
+			}
+		});
+
+		Jogger app = new Jogger(router);
+		app.setAsyncTimeout(200);
+		app.listen(27773);
+
+		try {
+			HttpResponse response = Request.Get("http://localhost:27773/").execute().returnResponse();
+			Assert.assertEquals(response.getStatusLine().getStatusCode(), 500);
+
+			Assert.assertTrue(written.await(5, TimeUnit.SECONDS));
+			Assert.assertTrue(writeException.get() instanceof IllegalStateException);
+		} finally {
+			app.stop();
+		}
+	}
+
+	@Test
+	public void shouldHandleDeferredFailureWithExceptionHandler() throws Exception {
+		final Deferred deferred = new Deferred();
+		Middleware middleware = new Middleware() {
+			@Override
+			public void handle(com.elibom.jogger.http.Request request, Response response, MiddlewareChain chain) {
+				request.startAsync(deferred);
+			}
+		};
+
+		ExceptionHandler exceptionHandler = mock(ExceptionHandler.class);
+		Jogger app = new Jogger(middleware);
+		app.setExceptionHandler(exceptionHandler);
+
+		MockRequest request = new MockRequest(app, "GET", "http://localhost/");
+		MockResponse response = new MockResponse(null);
+		app.handle(request, response);
+		verify(exceptionHandler, never()).handle(any(Exception.class), eq(request), eq(response));
+
+		Exception failure = new RuntimeException();
+		deferred.fail(failure);
+		verify(exceptionHandler).handle(failure, request, response);
+	}
+
+	@Test
+	public void shouldExecuteMiddlewaresInOrder() throws Exception {
+		final StringBuilder calls = new StringBuilder();
+		Middleware first = new Middleware() {
+			@Override
+			public void handle(com.elibom.jogger.http.Request request, Response response, MiddlewareChain chain) throws Exception {
+				calls.append("first,");
+				chain.next();
+			}
+		};
+		Middleware second = new Middleware() {
+			@Override
+			public void handle(com.elibom.jogger.http.Request request, Response response, MiddlewareChain chain) throws Exception {
+				calls.append("second");
+			}
+		};
+
+		Jogger app = new Jogger(first, second);
+		app.handle(mock(com.elibom.jogger.http.Request.class), mock(Response.class));
+		app.handle(mock(com.elibom.jogger.http.Request.class), mock(Response.class));
+
+		Assert.assertEquals(calls.toString(), "first,secondfirst,second");
+	}
+
+	@Test(expectedExceptions=NotFoundException.class)
+	public void shouldThrowNotFoundAfterLastMiddleware() throws Exception {
+		Middleware middleware = new Middleware() {
+			@Override
+			public void handle(com.elibom.jogger.http.Request request, Response response, MiddlewareChain chain) throws Exception {
+				chain.next();
+			}
+		};
+
+		Jogger app = new Jogger(middleware);
+		app.setExceptionHandler(null);
+
+		app.handle(mock(com.elibom.jogger.http.Request.class), mock(Response.class));
+	}
+
 	@Test(expectedExceptions=NotFoundException.class)
 	public void shouldNotFailWithNullExceptionHandler() throws Exception {
 		Jogger app = new Jogger();
@@ -0,0 +1,73 @@
+package com.elibom.jogger.asset;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class AssetManifestTest {
+
+	@Test
+	public void shouldFingerprintFiles() throws Exception {
+		File directory = createDirectory();
+		write(new File(directory, "app.js"), "var a = 1;");
+		write(new File(directory, "js/lib.min.js"), "var b = 2;");
+		write(new File(directory, "LICENSE"), "MIT");
+
+		AssetManifest manifest = new AssetManifest(directory);
+
+		String app = manifest.getFingerprintedPath("app.js");
+		Assert.assertTrue(app.matches("app\\.[0-9a-f]{8}\\.js"), app);
+		Assert.assertEquals(manifest.getPath(app), "app.js");
+
+		String lib = manifest.getFingerprintedPath("js/lib.min.js");
+		Assert.assertTrue(lib.matches("js/lib\\.min\\.[0-9a-f]{8}\\.js"), lib);
+		Assert.assertEquals(manifest.getPath(lib), "js/lib.min.js");
+
+		Assert.assertTrue(manifest.getFingerprintedPath("LICENSE").matches("LICENSE\\.[0-9a-f]{8}"));
+
+		Assert.assertNull(manifest.getFingerprintedPath("other.js"));
+		Assert.assertNull(manifest.getPath("app.js"));
+		Assert.assertEquals(manifest.getFingerprintedPaths().size(), 3);
+	}
+
+	@Test
+	public void shouldChangeFingerprintWithContent() throws Exception {
+		File directory = createDirectory();
+		File file = new File(directory, "app.js");
+
+		write(file, "var a = 1;");
+		String first = new AssetManifest(directory).getFingerprintedPath("app.js");
+
+		write(file, "var a = 2;");
+		AssetManifest manifest = new AssetManifest(directory);
+		String second = manifest.getFingerprintedPath("app.js");
+
+		Assert.assertFalse(first.equals(second));
+		Assert.assertTrue(manifest.isCurrent(second, new Asset(file, "application/javascript")));
+		Assert.assertFalse(manifest.isCurrent(second, new Asset(null, "app.js", "application/javascript", 3, 1000)));
+	}
+
+	private File createDirectory() throws Exception {
+		File directory = File.createTempFile("manifest", "");
+		directory.delete();
+		directory.mkdirs();
+		directory.deleteOnExit();
+
+		return directory;
+	}
+
+	private void write(File file, String content) throws Exception {
+		file.getParentFile().mkdirs();
+		file.deleteOnExit();
+
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+}
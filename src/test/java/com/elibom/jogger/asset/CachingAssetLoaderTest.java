@@ -0,0 +1,138 @@
+package com.elibom.jogger.asset;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.elibom.jogger.http.HttpException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CachingAssetLoaderTest {
+
+	@Test
+	public void shouldCacheAsset() throws Exception {
+		AssetLoader delegate = mock(AssetLoader.class);
+		when(delegate.load("test.css")).thenReturn(asset("test.css", "body {}", 1000));
+
+		CachingAssetLoader loader = new CachingAssetLoader(delegate);
+		loader.setRevalidateInterval(-1);
+
+		Assert.assertEquals(read(loader.load("test.css")), "body {}");
+		Assert.assertEquals(read(loader.load("test.css")), "body {}");
+		Assert.assertEquals(loader.getSize(), 7);
+
+		verify(delegate, times(1)).load("test.css");
+	}
+
+	@Test
+	public void shouldReturnNullIfAssetDoesntExist() throws Exception {
+		CachingAssetLoader loader = new CachingAssetLoader(mock(AssetLoader.class));
+		Assert.assertNull(loader.load("test.css"));
+	}
+
+	@Test
+	public void shouldNotCacheLargeAssets() throws Exception {
+		AssetLoader delegate = mock(AssetLoader.class);
+		when(delegate.load("test.css")).thenReturn(asset("test.css", "body {}", 1000), asset("test.css", "body {}", 1000));
+
+		CachingAssetLoader loader = new CachingAssetLoader(delegate);
+		loader.setMaxAssetSize(5);
+
+		Assert.assertEquals(read(loader.load("test.css")), "body {}");
+		Assert.assertEquals(read(loader.load("test.css")), "body {}");
+		Assert.assertEquals(loader.getSize(), 0);
+
+		verify(delegate, times(2)).load("test.css");
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedAsset() throws Exception {
+		AssetLoader delegate = mock(AssetLoader.class);
+		when(delegate.load("1.css")).thenReturn(asset("1.css", "12345", 1000), asset("1.css", "12345", 1000));
+		when(delegate.load("2.css")).thenReturn(asset("2.css", "12345", 1000));
+		when(delegate.load("3.css")).thenReturn(asset("3.css", "12345", 1000));
+
+		CachingAssetLoader loader = new CachingAssetLoader(delegate, 10);
+		loader.setRevalidateInterval(-1);
+
+		loader.load("1.css");
+		loader.load("2.css");
+		loader.load("2.css");
+		loader.load("3.css"); // evicts 1.css
+		Assert.assertEquals(loader.getSize(), 10);
+
+		loader.load("2.css");
+		loader.load("1.css");
+
+		verify(delegate, times(1)).load("2.css");
+		verify(delegate, times(2)).load("1.css");
+	}
+
+	@Test
+	public void shouldReloadModifiedAsset() throws Exception {
+		AssetLoader delegate = mock(AssetLoader.class);
+		when(delegate.load("test.css")).thenReturn(asset("test.css", "body {}", 1000), asset("test.css", "p {}", 2000));
+
+		CachingAssetLoader loader = new CachingAssetLoader(delegate);
+		loader.setRevalidateInterval(0);
+
+		Assert.assertEquals(read(loader.load("test.css")), "body {}");
+
+		Asset asset = loader.load("test.css");
+		Assert.assertEquals(read(asset), "p {}");
+		Assert.assertEquals(asset.getLastModified(), 2000);
+		Assert.assertEquals(loader.getSize(), 4);
+	}
+
+	@Test
+	public void shouldEvictAssetsWhenMaxSizeIsLowered() throws Exception {
+		AssetLoader delegate = mock(AssetLoader.class);
+		when(delegate.load("1.css")).thenReturn(asset("1.css", "12345", 1000));
+		when(delegate.load("2.css")).thenReturn(asset("2.css", "12345", 1000));
+
+		CachingAssetLoader loader = new CachingAssetLoader(delegate);
+		loader.load("1.css");
+		loader.load("2.css");
+		Assert.assertEquals(loader.getSize(), 10);
+
+		loader.setMaxSize(7);
+		Assert.assertEquals(loader.getSize(), 5);
+	}
+
+	@Test(expectedExceptions=HttpException.class)
+	public void shouldFailIfAssetCantBeRead() throws Exception {
+		InputStream inputStream = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("can't read");
+			}
+		};
+
+		AssetLoader delegate = mock(AssetLoader.class);
+		when(delegate.load("test.css")).thenReturn(new Asset(inputStream, "test.css", "text/css", 10, 1000));
+
+		new CachingAssetLoader(delegate).load("test.css");
+	}
+
+	private Asset asset(String name, String content, long lastModified) {
+		return new Asset(new ByteArrayInputStream(content.getBytes()), name, "text/css", content.length(), lastModified);
+	}
+
+	private String read(Asset asset) throws Exception {
+		InputStream inputStream = asset.getInputStream();
+		byte[] bytes = new byte[(int) asset.getLength()];
+		int offset = 0;
+		while (offset < bytes.length) {
+			offset += inputStream.read(bytes, offset, bytes.length - offset);
+		}
+		return new String(bytes);
+	}
+
+}
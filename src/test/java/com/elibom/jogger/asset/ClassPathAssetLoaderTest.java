@@ -0,0 +1,89 @@
+package com.elibom.jogger.asset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ClassPathAssetLoaderTest {
+
+	@Test
+	public void shouldLoadAssetFromDirectory() throws Exception {
+		ClassPathAssetLoader loader = new ClassPathAssetLoader("assets");
+
+		Asset asset = loader.load("asset.css");
+		Assert.assertNotNull(asset);
+		Assert.assertNotNull(asset.getFile());
+		Assert.assertEquals(asset.getName(), "asset.css");
+		Assert.assertEquals(asset.getContentType(), "text/css; charset=UTF-8");
+
+		Assert.assertNull(loader.load("not/existent.css"));
+	}
+
+	@Test
+	public void shouldLoadAssetsFromJar() throws Exception {
+		byte[] large = new byte[20 * 1024];
+		for (int i=0; i < large.length; i++) {
+			large[i] = (byte) ('a' + i % 26);
+		}
+
+		File jar = File.createTempFile("assets", ".jar");
+		jar.deleteOnExit();
+
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+		try {
+			out.putNextEntry(new JarEntry("public/"));
+			out.putNextEntry(new JarEntry("public/css/app.css"));
+			out.write("body {}".getBytes("UTF-8"));
+			out.putNextEntry(new JarEntry("public/large.txt"));
+			out.write(large);
+			out.putNextEntry(new JarEntry("other/file.txt"));
+			out.write("other".getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+
+		URLClassLoader classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, null);
+		ClassPathAssetLoader loader = new ClassPathAssetLoader("/public/", classLoader);
+		Assert.assertEquals(loader.size(), 2);
+
+		Asset asset = loader.load("/css/app.css");
+		Assert.assertNotNull(asset);
+		Assert.assertEquals(asset.getName(), "app.css");
+		Assert.assertEquals(asset.getContentType(), "text/css; charset=UTF-8");
+		Assert.assertEquals(asset.getLength(), 7);
+		Assert.assertEquals(new String(read(asset), "UTF-8"), "body {}");
+
+		// it can be loaded again
+		Assert.assertEquals(new String(read(loader.load("css/app.css")), "UTF-8"), "body {}");
+
+		asset = loader.load("large.txt");
+		Assert.assertEquals(asset.getLength(), large.length);
+		Assert.assertEquals(read(asset), large);
+
+		Assert.assertNull(loader.load("file.txt"));
+	}
+
+	private byte[] read(Asset asset) throws Exception {
+		InputStream inputStream = asset.getInputStream();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int length;
+			while ((length = inputStream.read(buffer)) != -1) {
+				out.write(buffer, 0, length);
+			}
+			return out.toByteArray();
+		} finally {
+			inputStream.close();
+		}
+	}
+
+}
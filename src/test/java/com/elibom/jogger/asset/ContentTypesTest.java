@@ -0,0 +1,33 @@
+package com.elibom.jogger.asset;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ContentTypesTest {
+
+	@Test
+	public void shouldResolveContentTypes() throws Exception {
+		Assert.assertEquals(ContentTypes.get("logo.png"), "image/png");
+		Assert.assertEquals(ContentTypes.get("fonts/icons.WOFF2"), "font/woff2");
+		Assert.assertEquals(ContentTypes.get("app.js"), "application/javascript; charset=UTF-8");
+		Assert.assertEquals(ContentTypes.get("css/style.css"), "text/css; charset=UTF-8");
+	}
+
+	@Test
+	public void shouldReturnDefaultForUnknownExtensions() throws Exception {
+		Assert.assertNull(ContentTypes.get("file.unknownext"));
+		Assert.assertNull(ContentTypes.get("README"));
+		Assert.assertNull(ContentTypes.get("dir.d/README"));
+		Assert.assertEquals(ContentTypes.get("README", "text/plain"), "text/plain");
+	}
+
+	@Test
+	public void shouldRegisterContentType() throws Exception {
+		ContentTypes.register("jogger", "text/x-jogger");
+		Assert.assertEquals(ContentTypes.get("test.jogger"), "text/x-jogger; charset=UTF-8");
+
+		ContentTypes.register("jogger", "text/x-jogger; charset=ISO-8859-1");
+		Assert.assertEquals(ContentTypes.get("test.jogger"), "text/x-jogger; charset=ISO-8859-1");
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.elibom.jogger.asset;
 
+import java.io.InputStream;
+
 import org.testng.Assert;
 
 import org.testng.annotations.Test;
@@ -12,6 +14,27 @@ public class FileAssetLoaderTest {
 		Asset asset = loader.load("test/resources/assets/asset.css");
 
 		Assert.assertNotNull(asset);
+		Assert.assertEquals(asset.getContentType(), "text/css; charset=UTF-8");
+	}
+
+	@Test
+	public void shouldBackAssetWithFile() throws Exception {
+		FileAssetLoader loader = new FileAssetLoader("src");
+		Asset asset = loader.load("test/resources/assets/asset.css");
+
+		Assert.assertNotNull(asset.getFile());
+		Assert.assertEquals(asset.getLength(), asset.getFile().length());
+
+		// a new stream is opened each time
+		InputStream first = asset.getInputStream();
+		InputStream second = asset.getInputStream();
+		try {
+			Assert.assertNotSame(first, second);
+			Assert.assertEquals(first.read(), second.read());
+		} finally {
+			first.close();
+			second.close();
+		}
 	}
 
 	@Test
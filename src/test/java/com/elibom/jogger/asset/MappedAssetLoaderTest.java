@@ -0,0 +1,109 @@
+package com.elibom.jogger.asset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MappedAssetLoaderTest {
+
+	@Test
+	public void shouldMapLargeFiles() throws Exception {
+		File directory = createDirectory();
+		write(new File(directory, "large.txt"), "0123456789");
+		write(new File(directory, "small.txt"), "0123");
+
+		MappedAssetLoader loader = new MappedAssetLoader(new FileAssetLoader(directory), 5);
+
+		Asset asset = loader.load("large.txt");
+		Assert.assertNotNull(asset.getBuffer());
+		Assert.assertNotNull(asset.getFile());
+		Assert.assertEquals(asset.getName(), "large.txt");
+		Assert.assertEquals(asset.getLength(), 10);
+		Assert.assertEquals(read(asset), "0123456789");
+		Assert.assertEquals(read(asset), "0123456789");
+		Assert.assertEquals(loader.getMappedCount(), 1);
+
+		// the buffer is shared
+		ByteBuffer buffer = loader.load("large.txt").getBuffer();
+		Assert.assertEquals(buffer.remaining(), 10);
+		Assert.assertEquals(loader.getMappedCount(), 1);
+
+		Asset small = loader.load("small.txt");
+		Assert.assertNull(small.getBuffer());
+		Assert.assertEquals(read(small), "0123");
+
+		Assert.assertNull(loader.load("missing.txt"));
+	}
+
+	@Test
+	public void shouldSliceMappedAsset() throws Exception {
+		File directory = createDirectory();
+		write(new File(directory, "large.txt"), "0123456789");
+
+		MappedAssetLoader loader = new MappedAssetLoader(new FileAssetLoader(directory), 5);
+
+		Asset slice = loader.load("large.txt").slice(3, 4);
+		Assert.assertEquals(slice.getLength(), 4);
+		Assert.assertEquals(slice.getOffset(), 3);
+		Assert.assertEquals(slice.getBuffer().remaining(), 4);
+		Assert.assertEquals(read(slice), "3456");
+	}
+
+	@Test
+	public void shouldMapFileAgainWhenModified() throws Exception {
+		File directory = createDirectory();
+		File file = new File(directory, "large.txt");
+		write(file, "0123456789");
+
+		MappedAssetLoader loader = new MappedAssetLoader(new FileAssetLoader(directory), 5);
+		Assert.assertEquals(read(loader.load("large.txt")), "0123456789");
+
+		File replacement = new File(directory, "replacement.txt");
+		write(replacement, "abcdefghijkl");
+		replacement.setLastModified(file.lastModified() + 10000);
+		Assert.assertTrue(replacement.renameTo(file) || (file.delete() && replacement.renameTo(file)));
+
+		Assert.assertEquals(read(loader.load("large.txt")), "abcdefghijkl");
+	}
+
+	private File createDirectory() throws Exception {
+		File directory = File.createTempFile("mapped", "");
+		directory.delete();
+		directory.mkdirs();
+		directory.deleteOnExit();
+
+		return directory;
+	}
+
+	private void write(File file, String content) throws Exception {
+		file.deleteOnExit();
+
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	private String read(Asset asset) throws Exception {
+		InputStream inputStream = asset.getInputStream();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[3];
+			int length;
+			while ((length = inputStream.read(buffer)) != -1) {
+				out.write(buffer, 0, length);
+			}
+			return out.toString("UTF-8");
+		} finally {
+			inputStream.close();
+		}
+	}
+
+}
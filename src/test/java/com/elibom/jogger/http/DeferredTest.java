@@ -0,0 +1,100 @@
+package com.elibom.jogger.http;
+
+import java.io.IOException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class DeferredTest {
+
+	@Test
+	public void shouldCallListenerAddedAfterCompletion() throws Exception {
+		Deferred deferred = new Deferred();
+		IOException failure = new IOException();
+		deferred.fail(failure);
+
+		RecordingListener listener = new RecordingListener();
+		deferred.addListener(listener);
+
+		Assert.assertTrue(listener.called);
+		Assert.assertSame(listener.failure, failure);
+	}
+
+	@Test
+	public void shouldPassListenerExceptionToFollowingListeners() throws Exception {
+		Deferred deferred = new Deferred();
+		IllegalStateException e = new IllegalStateException();
+		deferred.addListener(new FailingListener(e));
+		RecordingListener listener = new RecordingListener();
+		deferred.addListener(listener);
+
+		Assert.assertTrue(deferred.complete());
+
+		Assert.assertSame(listener.failure, e);
+		Assert.assertNull(deferred.getFailure());
+	}
+
+	@Test
+	public void shouldThrowExceptionOfLastListener() throws Exception {
+		Deferred deferred = new Deferred();
+		IllegalStateException e = new IllegalStateException();
+		deferred.addListener(new FailingListener(e));
+
+		try {
+			deferred.complete();
+			Assert.fail("should have thrown exception");
+		} catch (IllegalStateException ex) {
+			Assert.assertSame(ex, e);
+		}
+		Assert.assertTrue(deferred.isDone());
+	}
+
+	@Test
+	public void shouldThrowExceptionOfListenerAddedAfterCompletion() throws Exception {
+		Deferred deferred = new Deferred();
+		deferred.complete();
+
+		IOException e = new IOException();
+		try {
+			deferred.addListener(new FailingListener(e));
+			Assert.fail("should have thrown exception");
+		} catch (RuntimeException ex) {
+			Assert.assertSame(ex.getCause(), e);
+		}
+
+		// the exception is passed to the listeners added later
+		RecordingListener listener = new RecordingListener();
+		deferred.addListener(listener);
+		Assert.assertSame(listener.failure, e);
+	}
+
+	private class RecordingListener implements Deferred.Listener {
+
+		private boolean called;
+
+		private Exception failure;
+
+		@Override
+		public void onComplete(Exception failure) {
+			this.called = true;
+			this.failure = failure;
+		}
+
+	}
+
+	private class FailingListener implements Deferred.Listener {
+
+		private final Exception exception;
+
+		public FailingListener(Exception exception) {
+			this.exception = exception;
+		}
+
+		@Override
+		public void onComplete(Exception failure) throws Exception {
+			throw exception;
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.elibom.jogger.http;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class HttpDateTest {
+
+	@Test
+	public void shouldFormatDate() throws Exception {
+		Assert.assertEquals(HttpDate.format(784111777000L), "Sun, 06 Nov 1994 08:49:37 GMT");
+		Assert.assertEquals(HttpDate.format(784111777999L), "Sun, 06 Nov 1994 08:49:37 GMT");
+		Assert.assertEquals(HttpDate.format(0), "Thu, 01 Jan 1970 00:00:00 GMT");
+		Assert.assertEquals(HttpDate.format(951782400000L), "Tue, 29 Feb 2000 00:00:00 GMT");
+	}
+
+	@Test
+	public void shouldFormatLikeSimpleDateFormat() throws Exception {
+		SimpleDateFormat sdf = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+		sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+		Random random = new Random(42);
+		for (int i=0; i < 1000; i++) {
+			long time = (long) (random.nextDouble() * 4102444800000L);
+			String formatted = HttpDate.format(time);
+
+			Assert.assertEquals(formatted, sdf.format(new Date(time)));
+			Assert.assertEquals(HttpDate.parse(formatted), time / 1000 * 1000);
+		}
+	}
+
+	@Test
+	public void shouldParseAllFormats() throws Exception {
+		Assert.assertEquals(HttpDate.parse("Sun, 06 Nov 1994 08:49:37 GMT"), 784111777000L);
+		Assert.assertEquals(HttpDate.parse("Sunday, 06-Nov-94 08:49:37 GMT"), 784111777000L);
+		Assert.assertEquals(HttpDate.parse("Sun Nov  6 08:49:37 1994"), 784111777000L);
+		Assert.assertEquals(HttpDate.parse(" Sun, 06 Nov 1994 08:49:37 GMT; length=1234"), 784111777000L);
+	}
+
+	@Test
+	public void shouldNotParseInvalidDates() throws Exception {
+		Assert.assertEquals(HttpDate.parse(null), -1);
+		Assert.assertEquals(HttpDate.parse(""), -1);
+		Assert.assertEquals(HttpDate.parse("Sun, 06 Nov 1994 08:49:37 PST"), -1);
+		Assert.assertEquals(HttpDate.parse("Sun, 06 Abc 1994 08:49:37 GMT"), -1);
+		Assert.assertEquals(HttpDate.parse("Sun, 06 Nov 1994 25:49:37 GMT"), -1);
+		Assert.assertEquals(HttpDate.parse("1994-11-06T08:49:37Z"), -1);
+	}
+
+}
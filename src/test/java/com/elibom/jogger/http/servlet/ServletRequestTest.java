@@ -2,24 +2,33 @@ package com.elibom.jogger.http.servlet;
 
 import com.elibom.jogger.http.servlet.ServletRequest;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 
 import com.elibom.jogger.MockController;
+import com.elibom.jogger.exception.RequestEntityTooLargeException;
 import com.elibom.jogger.http.Cookie;
 import com.elibom.jogger.http.FileItem;
+import com.elibom.jogger.http.Part;
 import com.elibom.jogger.http.Request;
 import com.elibom.jogger.http.Response;
 import com.elibom.jogger.middleware.router.Route;
@@ -66,6 +75,23 @@ public class ServletRequestTest {
         Assert.assertEquals(pathVariables.get("hash"), "th1s1s4hAsh");
     }
 
+    @Test
+    public void shouldSetCapturedPathVariables() throws Exception {
+        HttpServletRequest servletRequest = mockServletRequest();
+        when(servletRequest.getRequestURI()).thenReturn("/users/1");
+
+        Route route = new Route(HttpMethod.GET, "/users/{userId}", new MockController(),
+                MockController.class.getMethod("init", Request.class, Response.class));
+        Map<String, String> captured = new HashMap<String, String>();
+        captured.put("userId", "1");
+
+        Request request = new ServletRequest(servletRequest);
+        request.setRoute(route, captured);
+
+        Assert.assertEquals(request.getPathVariables(), captured);
+        Assert.assertEquals(request.getPathVariable("userId"), "1");
+    }
+
     @Test
     public void shouldNotRetrieveNonExistingPathVariable() throws Exception {
         HttpServletRequest servletRequest = mockServletRequest();
@@ -117,6 +143,25 @@ public class ServletRequestTest {
         Assert.assertNull(params.get("notexistnet"));
     }
 
+    @Test
+    public void shouldRetrieveParamValues() throws Exception {
+        Map<String, String[]> mockParams = new HashMap<String, String[]>();
+        mockParams.put("param1", new String[]{"value1"});
+        mockParams.put("param2", new String[]{"val1", "val2"});
+
+        HttpServletRequest servletRequest = mockServletRequest();
+        when(servletRequest.getParameterMap()).thenReturn(mockParams);
+
+        Request request = new ServletRequest(servletRequest);
+        Assert.assertEquals(request.getParameterValues("param1"), Arrays.asList("value1"));
+        Assert.assertEquals(request.getParameterValues("param2"), Arrays.asList("val1", "val2"));
+        Assert.assertTrue(request.getParameterValues("notexistent").isEmpty());
+
+        Assert.assertEquals(request.getParameter("param2"), "val1,val2");
+        Assert.assertSame(request.getParameters(), request.getParameters());
+        verify(servletRequest, times(1)).getParameterMap();
+    }
+
     @Test
     public void shouldRetrieveStringParam() throws Exception {
         HttpServletRequest servletRequest = mockServletRequest();
@@ -259,6 +304,36 @@ public class ServletRequestTest {
         Assert.assertEquals(request.getHeader("Authorization"), "Basic ...");
     }
 
+    @Test
+    public void shouldRetrieveHeaders() throws Exception {
+        HttpServletRequest servletRequest = mockServletRequest();
+        when(servletRequest.getHeaderNames()).thenReturn(Collections.enumeration(Arrays.asList("Accept", "Host")));
+        when(servletRequest.getHeaders("Accept")).thenReturn(Collections.enumeration(Arrays.asList("text/html", "*/*")));
+        when(servletRequest.getHeaders("Host")).thenReturn(Collections.enumeration(Arrays.asList("localhost")));
+
+        Request request = new ServletRequest(servletRequest);
+
+        Map<String, String> headers = request.getHeaders();
+        Assert.assertEquals(headers.size(), 2);
+        Assert.assertEquals(headers.get("accept"), "text/html");
+        Assert.assertEquals(headers.get("HOST"), "localhost");
+        Assert.assertSame(request.getHeaders(), headers);
+
+        Assert.assertEquals(request.getHeaderValues("ACCEPT"), Arrays.asList("text/html", "*/*"));
+        Assert.assertTrue(request.getHeaderValues("Authorization").isEmpty());
+        verify(servletRequest, times(1)).getHeaderNames();
+    }
+
+    @Test
+    public void shouldRetrieveNullCookies() throws Exception {
+        HttpServletRequest servletRequest = mockServletRequest();
+        when(servletRequest.getCookies()).thenReturn(null);
+
+        Request request = new ServletRequest(servletRequest);
+        Assert.assertEquals(request.getCookies().size(), 0);
+        Assert.assertNull(request.getCookie("test"));
+    }
+
     @Test
     public void shouldRetrieveSingleFile() throws Exception {
         final InputStream bodyStream = getClass().getResourceAsStream("/multipart/single-file-fixed.txt");
@@ -286,9 +361,72 @@ public class ServletRequestTest {
         Assert.assertNotNull(file.getHeaders());
         Assert.assertEquals(file.getHeaders().size(), 3);
 
+        Assert.assertEquals(file.getName(), "files");
+        Assert.assertTrue(file.isInMemory());
+        Assert.assertEquals(new String(file.get(), "UTF-8"), "this is a plain file");
+
         Assert.assertEquals(request.getParameter("submit-name"), "Larry");
     }
 
+    @Test
+    public void shouldParseMultipartLazily() throws Exception {
+        final InputStream bodyStream = getClass().getResourceAsStream("/multipart/single-file-fixed.txt");
+
+        HttpServletRequest servletRequest = mockServletRequest("POST");
+        when(servletRequest.getContentType()).thenReturn("multipart/form-data; boundary=AaB03x");
+        when(servletRequest.getInputStream()).thenReturn(new ServletInputStream() {
+
+            @Override
+            public int read() throws IOException {
+                return bodyStream.read();
+            }
+
+        });
+
+        Request request = new ServletRequest(servletRequest);
+        verify(servletRequest, never()).getInputStream();
+
+        Assert.assertEquals(request.getParameter("submit-name"), "Larry");
+        Assert.assertEquals(request.getFiles().length, 1);
+        verify(servletRequest, times(1)).getInputStream();
+    }
+
+    @Test
+    public void shouldGivePrecedenceToServletParametersOverMultipartFields() throws Exception {
+        // the parameter is read before and after the parameters are built
+        Request request = new ServletRequest(mockMultipartRequestWithQueryParam());
+        Assert.assertEquals(request.getParameter("submit-name"), "Moe");
+        Assert.assertEquals(request.getParameters().get("submit-name"), "Moe");
+        Assert.assertEquals(request.getParameterValues("submit-name"), Arrays.asList("Moe"));
+
+        request = new ServletRequest(mockMultipartRequestWithQueryParam());
+        Assert.assertEquals(request.getParameters().get("submit-name"), "Moe");
+        Assert.assertEquals(request.getParameter("submit-name"), "Moe");
+    }
+
+    private HttpServletRequest mockMultipartRequestWithQueryParam() throws IOException {
+        final InputStream bodyStream = getClass().getResourceAsStream("/multipart/single-file-fixed.txt");
+
+        HttpServletRequest servletRequest = mockServletRequest("POST");
+        when(servletRequest.getContentType()).thenReturn("multipart/form-data; boundary=AaB03x");
+        when(servletRequest.getInputStream()).thenReturn(new ServletInputStream() {
+
+            @Override
+            public int read() throws IOException {
+                return bodyStream.read();
+            }
+
+        });
+
+        // the multipart body has a "submit-name" field with the "Larry" value
+        Map<String,String[]> params = new HashMap<String,String[]>();
+        params.put("submit-name", new String[] { "Moe" });
+        when(servletRequest.getParameterMap()).thenReturn(params);
+        when(servletRequest.getParameterValues("submit-name")).thenReturn(new String[] { "Moe" });
+
+        return servletRequest;
+    }
+
     @Test
     public void shouldRetrieveMultipleFiles() throws Exception {
         final InputStream bodyStream = getClass().getResourceAsStream("/multipart/multiple-files-fixed.txt");
@@ -309,6 +447,142 @@ public class ServletRequestTest {
         Assert.assertEquals(request.getFiles().length, 2);
     }
 
+    @Test
+    public void shouldStreamParts() throws Exception {
+        final InputStream bodyStream = getClass().getResourceAsStream("/multipart/single-file-fixed.txt");
+
+        HttpServletRequest servletRequest = mockServletRequest("POST");
+        when(servletRequest.getContentType()).thenReturn("multipart/form-data; boundary=AaB03x");
+        when(servletRequest.getInputStream()).thenReturn(new ServletInputStream() {
+
+            @Override
+            public int read() throws IOException {
+                return bodyStream.read();
+            }
+
+        });
+
+        Request request = new ServletRequest(servletRequest);
+        Iterator<Part> parts = request.getParts();
+
+        Assert.assertEquals(parts.next().getName(), "submit-name");
+        Part file = parts.next();
+        Assert.assertEquals(file.getFileName(), "file1.txt");
+        Assert.assertFalse(parts.hasNext());
+
+        // the body was already consumed
+        Assert.assertEquals(request.getFiles().length, 0);
+    }
+
+    @Test(expectedExceptions=IllegalStateException.class)
+    public void shouldFailToStreamPartsAfterParsing() throws Exception {
+        HttpServletRequest servletRequest = mockServletRequest("POST");
+        when(servletRequest.getContentType()).thenReturn("multipart/form-data; boundary=AaB03x");
+        when(servletRequest.getInputStream()).thenReturn(new ServletInputStream() {
+
+            @Override
+            public int read() throws IOException {
+                return -1;
+            }
+
+        });
+
+        Request request = new ServletRequest(servletRequest);
+        request.getFiles();
+        request.getParts();
+    }
+
+    @Test
+    public void shouldReadBodyOnce() throws Exception {
+        byte[] bytes = "{\"name\": \"Jos\u00e9\"}\n{}".getBytes("UTF-8");
+
+        HttpServletRequest servletRequest = mockServletRequest("POST");
+        when(servletRequest.getContentLength()).thenReturn(bytes.length);
+        when(servletRequest.getCharacterEncoding()).thenReturn("UTF-8");
+        when(servletRequest.getInputStream()).thenReturn(servletInputStream(bytes));
+
+        Request request = new ServletRequest(servletRequest);
+        Assert.assertEquals(request.getBody().asString(), "{\"name\": \"Jos\u00e9\"}\n{}");
+        Assert.assertEquals(request.getBody().asBytes(), bytes);
+        Assert.assertEquals(request.getBody().asInputStream().read(), '{');
+        verify(servletRequest, times(1)).getInputStream();
+    }
+
+    @Test
+    public void shouldReadBodyWithUnknownLength() throws Exception {
+        byte[] bytes = new byte[20000];
+        for (int i=0; i < bytes.length; i++) {
+            bytes[i] = (byte) ('a' + (i % 26));
+        }
+
+        HttpServletRequest servletRequest = mockServletRequest("POST");
+        when(servletRequest.getContentLength()).thenReturn(-1);
+        when(servletRequest.getInputStream()).thenReturn(servletInputStream(bytes));
+
+        Request request = new ServletRequest(servletRequest);
+        Assert.assertEquals(request.getBody().asBytes(), bytes);
+    }
+
+    @Test
+    public void shouldNotTrustContentLengthToAllocateBody() throws Exception {
+        byte[] bytes = "small body".getBytes("UTF-8");
+
+        HttpServletRequest servletRequest = mockServletRequest("POST");
+        when(servletRequest.getContentLength()).thenReturn(Integer.MAX_VALUE - 8);
+        when(servletRequest.getInputStream()).thenReturn(servletInputStream(bytes));
+
+        Request request = new ServletRequest(servletRequest);
+        Assert.assertEquals(request.getBody().asBytes(), bytes);
+    }
+
+    @Test
+    public void shouldReadBodyBiggerThanBuffer() throws Exception {
+        byte[] bytes = new byte[50000];
+        for (int i=0; i < bytes.length; i++) {
+            bytes[i] = (byte) ('a' + (i % 26));
+        }
+
+        HttpServletRequest servletRequest = mockServletRequest("POST");
+        when(servletRequest.getContentLength()).thenReturn(bytes.length);
+        when(servletRequest.getInputStream()).thenReturn(servletInputStream(bytes));
+
+        Request request = new ServletRequest(servletRequest);
+        Assert.assertEquals(request.getBody().asBytes(), bytes);
+    }
+
+    @Test(expectedExceptions=RequestEntityTooLargeException.class)
+    public void shouldRejectBodyBiggerThanContentLengthLimit() throws Exception {
+        HttpServletRequest servletRequest = mockServletRequest("POST");
+        when(servletRequest.getContentLength()).thenReturn(2000);
+
+        ServletRequest request = new ServletRequest(servletRequest);
+        request.setMaxBodySize(1000);
+        request.getBody().asString();
+    }
+
+    @Test(expectedExceptions=RequestEntityTooLargeException.class)
+    public void shouldRejectBodyBiggerThanLimit() throws Exception {
+        HttpServletRequest servletRequest = mockServletRequest("POST");
+        when(servletRequest.getContentLength()).thenReturn(-1);
+        when(servletRequest.getInputStream()).thenReturn(servletInputStream(new byte[2000]));
+
+        ServletRequest request = new ServletRequest(servletRequest);
+        request.setMaxBodySize(1000);
+        request.getBody().asBytes();
+    }
+
+    private ServletInputStream servletInputStream(byte[] bytes) {
+        final InputStream inputStream = new ByteArrayInputStream(bytes);
+        return new ServletInputStream() {
+
+            @Override
+            public int read() throws IOException {
+                return inputStream.read();
+            }
+
+        };
+    }
+
     private HttpServletRequest mockServletRequest() {
         return mockServletRequest("GET");
     }
@@ -4,16 +4,25 @@ import com.elibom.jogger.http.servlet.ServletResponse;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
+import com.elibom.jogger.asset.Asset;
 import com.elibom.jogger.http.Cookie;
+import com.elibom.jogger.http.EncodedBody;
 import com.elibom.jogger.http.Response;
 import com.elibom.jogger.template.TemplateEngine;
 import org.testng.Assert;
@@ -175,4 +184,129 @@ public class ServletResponseTest {
 		verify(servletResponse).sendRedirect("/");
 	}
 
+	@Test
+	public void shouldWriteFileAsset() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		HttpServletResponse servletResponse = mock(HttpServletResponse.class);
+		when(servletResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+			}
+		});
+
+		File file = new File("src/test/resources/assets/asset.css");
+		Asset asset = new Asset(file, "text/css");
+
+		Response response = new ServletResponse(servletResponse, mock(TemplateEngine.class));
+		response.write(asset);
+
+		verify(servletResponse).setContentType("text/css");
+		verify(servletResponse).setHeader("Content-Length", String.valueOf(file.length()));
+		Assert.assertEquals(out.size(), file.length());
+		Assert.assertTrue(response.isWritten());
+	}
+
+	@Test
+	public void shouldWriteBytes() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		HttpServletResponse servletResponse = mockServletResponse(out);
+
+		Response response = new ServletResponse(servletResponse, mock(TemplateEngine.class));
+		response.write("te".getBytes("UTF-8"));
+		response.write("st".getBytes("UTF-8"));
+
+		// the bytes may not be the whole body
+		verify(servletResponse, never()).setHeader(eq("Content-Length"), any(String.class));
+		Assert.assertEquals(out.toString("UTF-8"), "test");
+		Assert.assertTrue(response.isWritten());
+	}
+
+	@Test
+	public void shouldWriteByteBuffers() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		HttpServletResponse servletResponse = mockServletResponse(out);
+
+		ByteBuffer heap = ByteBuffer.wrap("xxtestxx".getBytes("UTF-8"), 2, 4);
+		ByteBuffer direct = ByteBuffer.allocateDirect(4);
+		direct.put("1234".getBytes("UTF-8"));
+		direct.flip();
+
+		Response response = new ServletResponse(servletResponse, mock(TemplateEngine.class));
+		response.write(heap);
+		response.write(direct);
+
+		verify(servletResponse, never()).setHeader(eq("Content-Length"), any(String.class));
+		Assert.assertEquals(out.toString("UTF-8"), "test1234");
+		Assert.assertFalse(heap.hasRemaining());
+		Assert.assertFalse(direct.hasRemaining());
+	}
+
+	@Test
+	public void shouldWriteEncodedBody() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		HttpServletResponse servletResponse = mockServletResponse(out);
+
+		EncodedBody body = new EncodedBody("{\"name\": \"Jos\u00e9\"}", "application/json; charset=UTF-8");
+
+		Response response = new ServletResponse(servletResponse, mock(TemplateEngine.class));
+		response.write(body);
+
+		verify(servletResponse).setContentType("application/json; charset=UTF-8");
+		verify(servletResponse).setHeader("Content-Length", "17");
+		Assert.assertEquals(out.toByteArray(), body.getBytes());
+	}
+
+	@Test
+	public void shouldStreamOutput() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		HttpServletResponse servletResponse = mockServletResponse(out);
+
+		Response response = new ServletResponse(servletResponse, mock(TemplateEngine.class));
+		OutputStream output = response.getOutputStream();
+		Assert.assertTrue(response.isWritten());
+
+		output.write("row1\n".getBytes("UTF-8"));
+		response.flush();
+		output.write("row2\n".getBytes("UTF-8"));
+
+		verify(servletResponse).flushBuffer();
+		verify(servletResponse, never()).setHeader(eq("Content-Length"), any(String.class));
+		Assert.assertEquals(out.toString("UTF-8"), "row1\nrow2\n");
+	}
+
+	@Test
+	public void shouldFailToWriteAfterClose() throws Exception {
+		HttpServletResponse servletResponse = mockServletResponse(new ByteArrayOutputStream());
+
+		ServletResponse response = new ServletResponse(servletResponse, mock(TemplateEngine.class));
+		response.close();
+		Assert.assertTrue(response.isClosed());
+
+		try {
+			response.write("test".getBytes("UTF-8"));
+			Assert.fail("should have thrown IllegalStateException");
+		} catch (IllegalStateException e) {}
+
+		try {
+			response.status(Response.OK);
+			Assert.fail("should have thrown IllegalStateException");
+		} catch (IllegalStateException e) {}
+
+		verify(servletResponse, never()).getOutputStream();
+		verify(servletResponse, never()).setStatus(Response.OK);
+	}
+
+	private HttpServletResponse mockServletResponse(final ByteArrayOutputStream out) throws Exception {
+		HttpServletResponse servletResponse = mock(HttpServletResponse.class);
+		when(servletResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+			}
+		});
+
+		return servletResponse;
+	}
+
 }
@@ -0,0 +1,82 @@
+package com.elibom.jogger.http.servlet.multipart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MultipartReaderTest {
+
+	private static final String[] BODIES = {
+		"",
+		"a",
+		"--AaB03",
+		"\r\n--AaB03",
+		"text with \r\n--AaB03y and \r\n-- in the middle",
+		"--AaB03x but without the CRLF",
+		"ends with the prefix of the boundary \r\n--AaB0"
+	};
+
+	@Test
+	public void shouldReadBodiesWithAnyBufferSize() throws Exception {
+		byte[] data = multipart(BODIES).getBytes("ISO-8859-1");
+
+		// the boundary is split between reads with small buffers
+		for (int bufSize = 16; bufSize <= 64; bufSize++) {
+			Assert.assertEquals(read(data, bufSize), BODIES, "buffer size " + bufSize);
+		}
+		Assert.assertEquals(read(data, 16384), BODIES);
+	}
+
+	@Test
+	public void shouldReadLargeBody() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i < 20000; i++) {
+			sb.append((char) ('0' + (i % 10)));
+			if (i % 1000 == 0) {
+				sb.append("\r\n--AaB03");
+			}
+		}
+		String[] bodies = { sb.toString(), "small" };
+
+		byte[] data = multipart(bodies).getBytes("ISO-8859-1");
+		Assert.assertEquals(read(data, 4096), bodies);
+		Assert.assertEquals(read(data, 16384), bodies);
+	}
+
+	private String multipart(String[] bodies) {
+		StringBuilder sb = new StringBuilder("preamble\r\n");
+		for (int i=0; i < bodies.length; i++) {
+			sb.append("--AaB03x\r\n");
+			sb.append("Content-Disposition: form-data; name=\"field" + i + "\"\r\n\r\n");
+			sb.append(bodies[i]).append("\r\n");
+		}
+		sb.append("--AaB03x--\r\n");
+
+		return sb.toString();
+	}
+
+	private String[] read(byte[] data, int bufSize) throws Exception {
+		MultipartReader reader = new MultipartReader(new ByteArrayInputStream(data), "AaB03x".getBytes("ISO-8859-1"),
+				bufSize);
+
+		List<String> bodies = new ArrayList<String>();
+
+		boolean nextPart = reader.skipPreamble();
+		while (nextPart) {
+			reader.readHeaders();
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			reader.readBodyData(out);
+			bodies.add(out.toString("ISO-8859-1"));
+
+			nextPart = reader.readBoundary();
+		}
+
+		return bodies.toArray(new String[0]);
+	}
+
+}
@@ -0,0 +1,200 @@
+package com.elibom.jogger.http.servlet.multipart;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.elibom.jogger.exception.RequestEntityTooLargeException;
+import com.elibom.jogger.http.FileItem;
+import com.elibom.jogger.http.Part;
+
+public class MultipartTest {
+
+	@Test
+	public void shouldHoldSmallFilesInMemory() throws Exception {
+		List<FileItem> files = parse("/multipart/single-file-fixed.txt", Multipart.DEFAULT_SIZE_THRESHOLD);
+
+		Assert.assertEquals(files.size(), 1);
+		FileItem file = files.get(0);
+		Assert.assertTrue(file.isInMemory());
+		Assert.assertEquals(file.getContentLength(), 20);
+		Assert.assertEquals(new String(file.get(), "UTF-8"), "this is a plain file");
+	}
+
+	@Test
+	public void shouldStoreBigFilesInTempFiles() throws Exception {
+		List<FileItem> files = parse("/multipart/single-file-fixed.txt", 10);
+
+		Assert.assertEquals(files.size(), 1);
+		FileItem file = files.get(0);
+		Assert.assertFalse(file.isInMemory());
+		Assert.assertEquals(file.getFile().length(), 20);
+		Assert.assertEquals(new String(file.get(), "UTF-8"), "this is a plain file");
+
+		file.getFile().delete();
+	}
+
+	@Test
+	public void shouldWriteInMemoryFileWhenRequested() throws Exception {
+		List<FileItem> files = parse("/multipart/single-file-fixed.txt", Multipart.DEFAULT_SIZE_THRESHOLD);
+
+		FileItem file = files.get(0);
+		Assert.assertNotNull(file.getFile());
+		Assert.assertEquals(file.getFile().length(), 20);
+		Assert.assertSame(file.getFile(), file.getFile());
+
+		file.getFile().delete();
+	}
+
+	@Test
+	public void shouldIterateParts() throws Exception {
+		Iterator<Part> parts = new Multipart().getParts(mockRequest("/multipart/multiple-files-fixed.txt"));
+
+		Assert.assertTrue(parts.hasNext());
+		Part part = parts.next();
+		Assert.assertEquals(part.getName(), "submit-name");
+		Assert.assertNull(part.getFileName());
+		Assert.assertEquals(Streams.asString(part.getInputStream()), "Larry");
+
+		// the content of this part is skipped
+		part = parts.next();
+		Assert.assertEquals(part.getName(), "files");
+		Assert.assertEquals(part.getFileName(), "file1.txt");
+		Assert.assertEquals(part.getContentType(), "text/plain");
+
+		part = parts.next();
+		Assert.assertEquals(part.getName(), "files");
+		Assert.assertEquals(part.getFileName(), "file2.gif");
+		Assert.assertEquals(Streams.asString(part.getInputStream()), "sdfsdf38owefhoe8yr");
+
+		Assert.assertFalse(parts.hasNext());
+	}
+
+	@Test
+	public void shouldRejectPartBiggerThanLimit() throws Exception {
+		Multipart multipart = new Multipart();
+		multipart.setMaxPartSize(10);
+
+		try {
+			parse(multipart, mockRequest("/multipart/single-file-fixed.txt"));
+			Assert.fail("should have thrown RequestEntityTooLargeException");
+		} catch (RequestEntityTooLargeException e) {}
+
+		Assert.assertEquals(multipart.getRejectedRequests(), 1);
+		Assert.assertTrue(multipart.getRejectedBytes() > 0);
+		Assert.assertEquals(multipart.getRejectedBytes(), multipart.getParsedBytes());
+	}
+
+	@Test
+	public void shouldRejectRequestBiggerThanContentLengthLimit() throws Exception {
+		HttpServletRequest request = mockRequest("/multipart/single-file-fixed.txt");
+		when(request.getContentLength()).thenReturn(1000);
+
+		Multipart multipart = new Multipart();
+		multipart.setMaxRequestSize(500);
+
+		try {
+			parse(multipart, request);
+			Assert.fail("should have thrown RequestEntityTooLargeException");
+		} catch (RequestEntityTooLargeException e) {}
+
+		Assert.assertEquals(multipart.getRejectedRequests(), 1);
+		Assert.assertEquals(multipart.getRejectedBytes(), 1000);
+		Assert.assertEquals(multipart.getParsedBytes(), 0);
+	}
+
+	@Test
+	public void shouldRejectRequestBiggerThanLimit() throws Exception {
+		Multipart multipart = new Multipart();
+		multipart.setMaxRequestSize(100);
+
+		try {
+			parse(multipart, mockRequest("/multipart/single-file-fixed.txt"));
+			Assert.fail("should have thrown RequestEntityTooLargeException");
+		} catch (RequestEntityTooLargeException e) {}
+
+		Assert.assertEquals(multipart.getRejectedRequests(), 1);
+	}
+
+	@Test
+	public void shouldRejectRequestWithTooManyParts() throws Exception {
+		Multipart multipart = new Multipart();
+		multipart.setMaxParts(2);
+
+		try {
+			parse(multipart, mockRequest("/multipart/multiple-files-fixed.txt"));
+			Assert.fail("should have thrown RequestEntityTooLargeException");
+		} catch (RequestEntityTooLargeException e) {}
+
+		Assert.assertEquals(multipart.getRejectedRequests(), 1);
+	}
+
+	@Test
+	public void shouldCountParsedBytes() throws Exception {
+		Multipart multipart = new Multipart();
+		multipart.setMaxRequestSize(1000);
+		multipart.setMaxPartSize(100);
+		multipart.setMaxParts(3);
+
+		Assert.assertEquals(parse(multipart, mockRequest("/multipart/multiple-files-fixed.txt")).size(), 2);
+		Assert.assertEquals(multipart.getParsedBytes(), getClass().getResource("/multipart/multiple-files-fixed.txt")
+				.openConnection().getContentLength());
+		Assert.assertEquals(multipart.getRejectedRequests(), 0);
+		Assert.assertEquals(multipart.getRejectedBytes(), 0);
+	}
+
+	private List<FileItem> parse(String resource, int sizeThreshold) throws Exception {
+		Multipart multipart = new Multipart();
+		multipart.setSizeThreshold(sizeThreshold);
+
+		return parse(multipart, mockRequest(resource));
+	}
+
+	private List<FileItem> parse(Multipart multipart, HttpServletRequest request) throws Exception {
+		final List<FileItem> files = new ArrayList<FileItem>();
+
+		multipart.parse(request, new PartHandler() {
+
+			@Override
+			public void handleFormItem(String name, String value) {}
+
+			@Override
+			public void handleFileItem(String name, FileItem fileItem) {
+				files.add(fileItem);
+			}
+
+		});
+
+		return files;
+	}
+
+	private HttpServletRequest mockRequest(String resource) throws Exception {
+		final InputStream bodyStream = getClass().getResourceAsStream(resource);
+
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getMethod()).thenReturn("POST");
+		when(request.getContentType()).thenReturn("multipart/form-data; boundary=AaB03x");
+		when(request.getInputStream()).thenReturn(new ServletInputStream() {
+
+			@Override
+			public int read() throws IOException {
+				return bodyStream.read();
+			}
+
+		});
+
+		return request;
+	}
+
+}
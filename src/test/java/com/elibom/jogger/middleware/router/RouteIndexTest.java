@@ -0,0 +1,108 @@
+package com.elibom.jogger.middleware.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.elibom.jogger.MockController;
+import com.elibom.jogger.http.Request;
+import com.elibom.jogger.http.Response;
+import com.elibom.jogger.middleware.router.Route.HttpMethod;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RouteIndexTest {
+
+	@Test
+	public void shouldFindRoot() throws Exception {
+		RouteIndex index = buildIndex(route(HttpMethod.GET, "/"));
+
+		Assert.assertNotNull(index.find("GET", "/"));
+		Assert.assertNull(index.find("GET", "/users"));
+	}
+
+	@Test
+	public void shouldFindStaticPathIgnoringCase() throws Exception {
+		Route route = route(HttpMethod.GET, "/users/new");
+		RouteIndex index = buildIndex(route(HttpMethod.GET, "/users"), route);
+
+		RouteIndex.Match match = index.find("get", "/Users/NEW");
+		Assert.assertNotNull(match);
+		Assert.assertEquals(match.getRoute(), route);
+		Assert.assertTrue(match.getPathVariables().isEmpty());
+	}
+
+	@Test
+	public void shouldNotFindRouteWithOtherHttpMethod() throws Exception {
+		RouteIndex index = buildIndex(route(HttpMethod.GET, "/users"));
+
+		Assert.assertNull(index.find("POST", "/users"));
+		Assert.assertNull(index.find("TRACE", "/users"));
+	}
+
+	@Test
+	public void shouldCaptureVariables() throws Exception {
+		RouteIndex index = buildIndex(route(HttpMethod.GET, "/users/{userId}/orders/{orderId}"));
+
+		RouteIndex.Match match = index.find("GET", "/users/1/orders/abc-2");
+		Assert.assertNotNull(match);
+
+		Map<String,String> variables = match.getPathVariables();
+		Assert.assertEquals(variables.size(), 2);
+		Assert.assertEquals(variables.get("userId"), "1");
+		Assert.assertEquals(variables.get("orderId"), "abc-2");
+
+		Assert.assertNull(index.find("GET", "/users/1/orders"));
+		Assert.assertNull(index.find("GET", "/users//orders/2"));
+	}
+
+	@Test
+	public void shouldCaptureVariablesInPatternSegments() throws Exception {
+		RouteIndex index = buildIndex(route(HttpMethod.GET, "/files/{name}.json"));
+
+		RouteIndex.Match match = index.find("GET", "/files/report.JSON");
+		Assert.assertNotNull(match);
+		Assert.assertEquals(match.getPathVariables().get("name"), "report");
+
+		Assert.assertNull(index.find("GET", "/files/report"));
+	}
+
+	@Test
+	public void shouldPreferFirstAddedRoute() throws Exception {
+		Route variable = route(HttpMethod.GET, "/users/{id}");
+		Route literal = route(HttpMethod.GET, "/users/new");
+		RouteIndex index = buildIndex(variable, literal);
+
+		Assert.assertEquals(index.find("GET", "/users/new").getRoute(), variable);
+
+		index = buildIndex(literal, variable);
+		Assert.assertEquals(index.find("GET", "/users/new").getRoute(), literal);
+		Assert.assertEquals(index.find("GET", "/users/1").getRoute(), variable);
+	}
+
+	@Test
+	public void shouldBacktrackWhenBranchDoesNotMatch() throws Exception {
+		Route literal = route(HttpMethod.GET, "/users/new/edit");
+		Route variable = route(HttpMethod.GET, "/users/{id}/show");
+		RouteIndex index = buildIndex(literal, variable);
+
+		RouteIndex.Match match = index.find("GET", "/users/new/show");
+		Assert.assertNotNull(match);
+		Assert.assertEquals(match.getRoute(), variable);
+		Assert.assertEquals(match.getPathVariables().get("id"), "new");
+	}
+
+	private RouteIndex buildIndex(Route... routes) {
+		List<Route> list = new ArrayList<Route>();
+		for (Route route : routes) {
+			list.add(route);
+		}
+		return new RouteIndex(list, 0);
+	}
+
+	private Route route(HttpMethod httpMethod, String path) throws Exception {
+		return new Route(httpMethod, path, new MockController(),
+				MockController.class.getMethod("init", Request.class, Response.class));
+	}
+
+}
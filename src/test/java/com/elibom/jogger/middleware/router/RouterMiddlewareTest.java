@@ -7,15 +7,21 @@ import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.elibom.jogger.AnnotatedActionMockController;
+import com.elibom.jogger.Jogger;
 import com.elibom.jogger.AnnotatedMockController;
 import com.elibom.jogger.MiddlewareChain;
 import com.elibom.jogger.MockAnnotation;
 import com.elibom.jogger.MockController;
+import com.elibom.jogger.http.Deferred;
 import com.elibom.jogger.http.Request;
 import com.elibom.jogger.http.Response;
 import com.elibom.jogger.middleware.router.Route;
@@ -23,7 +29,9 @@ import com.elibom.jogger.middleware.router.RouteHandler;
 import com.elibom.jogger.middleware.router.RouterMiddleware;
 import com.elibom.jogger.middleware.router.Route.HttpMethod;
 import com.elibom.jogger.middleware.router.interceptor.Interceptor;
+import com.elibom.jogger.middleware.router.interceptor.InterceptorEntry;
 import com.elibom.jogger.middleware.router.interceptor.InterceptorExecution;
+import com.elibom.jogger.test.MockRequest;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -95,6 +103,154 @@ public class RouterMiddlewareTest {
 		shouldMatchRoute(HttpMethod.POST, "/test/{id_test}/mocks/{id_mock}", "/test/1/mocks/2/");
 	}
 	
+	@Test
+	public void shouldSetRouteWithPathVariables() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.addRoute(HttpMethod.GET, "/users/{userId}", mock(RouteHandler.class), "handle");
+
+		Request request = mockRequest("get", "/users/1");
+		router.handle(request, mock(Response.class), mock(MiddlewareChain.class));
+
+		Map<String,String> pathVariables = new HashMap<String,String>();
+		pathVariables.put("userId", "1");
+
+		Route route = router.getRoutes().get(0);
+		verify(request).setRoute(route, pathVariables);
+	}
+
+	@Test(expectedExceptions=IllegalStateException.class)
+	public void shouldPropagateRouteHandlerException() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/", new RouteHandler() {
+			@Override
+			public void handle(Request request, Response response) {
+				throw new IllegalStateException();
+			}
+		});
+
+		router.handle(mockRequest("get", "/"), mock(Response.class), mock(MiddlewareChain.class));
+	}
+
+	@Test(expectedExceptions=IOException.class)
+	public void shouldPropagateControllerException() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.addRoute(HttpMethod.GET, "/", new FailingController(), "fail");
+
+		router.handle(mockRequest("get", "/"), mock(Response.class), mock(MiddlewareChain.class));
+	}
+
+	@Test
+	public void shouldStartAsyncRequestWithAsyncRouteHandler() throws Exception {
+		final Deferred deferred = new Deferred();
+
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/", new AsyncRouteHandler() {
+			@Override
+			public Deferred handle(Request request, Response response) {
+				return deferred;
+			}
+		});
+
+		Request request = mockRequest("get", "/");
+		router.handle(request, mock(Response.class), mock(MiddlewareChain.class));
+
+		verify(request).startAsync(deferred);
+	}
+
+	@Test
+	public void shouldStartAsyncRequestWithController() throws Exception {
+		AsyncController controller = new AsyncController();
+
+		RouterMiddleware router = new RouterMiddleware();
+		router.addRoute(HttpMethod.GET, "/", controller, "show");
+
+		Request request = mockRequest("get", "/");
+		router.handle(request, mock(Response.class), mock(MiddlewareChain.class));
+
+		verify(request).startAsync(controller.deferred);
+	}
+
+	@Test
+	public void shouldNotStartAsyncRequestWithSyncController() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/", mock(RouteHandler.class));
+
+		Request request = mockRequest("get", "/");
+		router.handle(request, mock(Response.class), mock(MiddlewareChain.class));
+
+		verify(request, never()).startAsync(any(Deferred.class));
+	}
+
+	@Test
+	public void shouldCallInterceptorListenerWhenAsyncActionCompletes() throws Exception {
+		final List<String> events = new ArrayList<String>();
+		final Deferred deferred = new Deferred();
+
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/", new AsyncRouteHandler() {
+			@Override
+			public Deferred handle(Request request, Response response) {
+				events.add("action");
+				return deferred;
+			}
+		});
+
+		router.addInterceptor(new Interceptor() {
+			@Override
+			public void intercept(Request request, Response response, InterceptorExecution execution) throws Exception {
+				events.add("before");
+				execution.proceed();
+
+				request.getDeferred().addListener(new Deferred.Listener() {
+					@Override
+					public void onComplete(Exception failure) {
+						events.add("completed");
+					}
+				});
+			}
+		});
+
+		// interceptors that don't add a listener finish when the action returns
+		ProceedInterceptor interceptor = new ProceedInterceptor();
+		router.addInterceptor(interceptor);
+
+		Request request = new MockRequest(new Jogger(), "GET", "http://localhost/");
+		router.handle(request, mock(Response.class), mock(MiddlewareChain.class));
+
+		Assert.assertSame(request.getDeferred(), deferred);
+		Assert.assertTrue(interceptor.wasCalled());
+		Assert.assertEquals(events, Arrays.asList("before", "action"));
+
+		deferred.complete();
+		Assert.assertEquals(events, Arrays.asList("before", "action", "completed"));
+	}
+
+	private class AsyncController {
+		private final Deferred deferred = new Deferred();
+
+		public Deferred show(Request request, Response response) {
+			return deferred;
+		}
+	}
+
+	private class FailingController {
+		public void fail(Request request, Response response) throws IOException {
+			throw new IOException();
+		}
+	}
+
+	@Test
+	public void shouldCompileRoutePattern() throws Exception {
+		Route route = new Route(HttpMethod.GET, "/users/{userId}/edit/{hash}", new MockController(),
+				MockController.class.getMethod("init", Request.class, Response.class));
+
+		Assert.assertEquals(route.getVariables().size(), 2);
+		Assert.assertEquals(route.getVariables().get(0), "userId");
+		Assert.assertEquals(route.getVariables().get(1), "hash");
+		Assert.assertTrue(route.getPattern().matcher("/Users/1/edit/abc").matches());
+		Assert.assertFalse(route.getPattern().matcher("/users/1/edit").matches());
+	}
+
 	@Test(dependsOnMethods="shouldAddRoutes")
 	public void shouldNotFindRouteWithWrongHttpMethod() throws Exception {
 		RouterMiddleware router = new RouterMiddleware();
@@ -129,6 +285,25 @@ public class RouterMiddlewareTest {
 		verify(response, never()).status(Response.NOT_FOUND);
 	}
 	
+	@Test
+	public void shouldCallRouteReplacedAfterFirstRequest() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		RouteHandler handler = mock(RouteHandler.class);
+		router.get("/users", handler);
+
+		router.handle(mockRequest("get", "/users"), mock(Response.class), mock(MiddlewareChain.class));
+		verify(handler).handle(any(Request.class), any(Response.class));
+
+		// replace the route using the list, the size doesn't change
+		RouteHandler otherHandler = mock(RouteHandler.class);
+		Method method = RouteHandler.class.getMethod("handle", Request.class, Response.class);
+		router.getRoutes().set(0, new Route(HttpMethod.GET, "/users", otherHandler, method));
+
+		router.handle(mockRequest("get", "/users"), mock(Response.class), mock(MiddlewareChain.class));
+		verify(otherHandler).handle(any(Request.class), any(Response.class));
+		verify(handler).handle(any(Request.class), any(Response.class));
+	}
+
 	@Test
 	public void shouldCallInterceptors() throws Exception {
 		RouterMiddleware router = new RouterMiddleware();
@@ -150,6 +325,68 @@ public class RouterMiddlewareTest {
 		verify(handler).handle(any(Request.class), any(Response.class));
 	}
 	
+	@Test
+	public void shouldCallInterceptorsMatchingPaths() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/users/{id}", mock(RouteHandler.class));
+		router.get("/users/{id}.json", mock(RouteHandler.class));
+
+		ProceedInterceptor prefix = new ProceedInterceptor();
+		ProceedInterceptor otherPrefix = new ProceedInterceptor();
+		ProceedInterceptor extension = new ProceedInterceptor();
+		ProceedInterceptor exact = new ProceedInterceptor();
+		router.addInterceptor(prefix, "/users/*");
+		router.addInterceptor(otherPrefix, "/orders/*");
+		router.addInterceptor(extension, "*.json");
+		router.addInterceptor(exact, "/users/1");
+
+		router.handle(mockRequest("get", "/users/2"), mock(Response.class), mock(MiddlewareChain.class));
+		Assert.assertTrue(prefix.wasCalled());
+		Assert.assertFalse(otherPrefix.wasCalled());
+		Assert.assertFalse(extension.wasCalled());
+		Assert.assertFalse(exact.wasCalled());
+
+		router.handle(mockRequest("get", "/users/1"), mock(Response.class), mock(MiddlewareChain.class));
+		Assert.assertFalse(extension.wasCalled());
+		Assert.assertTrue(exact.wasCalled());
+
+		router.handle(mockRequest("get", "/users/1.json"), mock(Response.class), mock(MiddlewareChain.class));
+		Assert.assertTrue(extension.wasCalled());
+		Assert.assertFalse(otherPrefix.wasCalled());
+	}
+
+	@Test
+	public void shouldCallInterceptorAddedAfterFirstRequest() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/users", mock(RouteHandler.class));
+
+		router.handle(mockRequest("get", "/users"), mock(Response.class), mock(MiddlewareChain.class));
+
+		ProceedInterceptor interceptor = new ProceedInterceptor();
+		router.addInterceptor(interceptor, "/Users");
+
+		router.handle(mockRequest("get", "/users"), mock(Response.class), mock(MiddlewareChain.class));
+		Assert.assertTrue(interceptor.wasCalled());
+	}
+
+	@Test
+	public void shouldCallInterceptorReplacedAfterFirstRequest() throws Exception {
+		RouterMiddleware router = new RouterMiddleware();
+		router.get("/users", mock(RouteHandler.class));
+
+		ProceedInterceptor interceptor = new ProceedInterceptor();
+		router.addInterceptor(interceptor);
+		router.handle(mockRequest("get", "/users"), mock(Response.class), mock(MiddlewareChain.class));
+		Assert.assertTrue(interceptor.wasCalled());
+
+		// replace the interceptor using the list, the size doesn't change
+		ProceedInterceptor otherInterceptor = new ProceedInterceptor();
+		router.getInterceptors().set(0, new InterceptorEntry(otherInterceptor));
+
+		router.handle(mockRequest("get", "/users"), mock(Response.class), mock(MiddlewareChain.class));
+		Assert.assertTrue(otherInterceptor.wasCalled());
+	}
+
 	private Request mockRequest(String httpMethod, String path) {
 		Request request = mock(Request.class);
 		when(request.getMethod()).thenReturn(httpMethod);
@@ -217,6 +454,30 @@ public class RouterMiddlewareTest {
 		public void action(Request request, Response response) {}
 	}
 
+	@Test
+	public void shouldRetrieveActionAnnotationInIndirectSuperclass() throws Exception {
+		IndirectAnnotatedActionMockController controller = new IndirectAnnotatedActionMockController();
+		Method method = IndirectAnnotatedActionMockController.class.getMethod("action", Request.class, Response.class);
+		Route route = new Route(HttpMethod.GET, "/", controller, method);
+
+		RouterMiddleware router = new RouterMiddleware();
+		router.addRoute(route);
+
+		ProceedInterceptor interceptor = new ProceedInterceptor();
+		router.addInterceptor(interceptor);
+
+		router.handle(mockRequest("get", "/"), mock(Response.class), mock(MiddlewareChain.class));
+
+		Assert.assertTrue(interceptor.getActionHasAnnotation());
+	}
+
+	private class NotOverridingMockController extends AnnotatedActionMockController {}
+
+	private class IndirectAnnotatedActionMockController extends NotOverridingMockController {
+		@Override
+		public void action(Request request, Response response) {}
+	}
+
 	@Test
 	public void shouldAddRouteUsingObjectAndMethod() throws Exception {
 		RouterMiddleware router = new RouterMiddleware();
@@ -0,0 +1,51 @@
+package com.elibom.jogger.middleware.statik;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ByteRangeTest {
+
+	@Test
+	public void shouldParseRanges() throws Exception {
+		List<ByteRange> ranges = ByteRange.parse("bytes=0-99, 200-, -50", 1000);
+		Assert.assertNull(ranges);
+
+		ranges = ByteRange.parse("bytes=0-99, 200-299, 500-", 1000);
+		Assert.assertNotNull(ranges);
+		Assert.assertEquals(ranges.size(), 3);
+		Assert.assertEquals(ranges.get(0).toContentRange(1000), "bytes 0-99/1000");
+		Assert.assertEquals(ranges.get(1).getLength(), 100);
+		Assert.assertEquals(ranges.get(2).toContentRange(1000), "bytes 500-999/1000");
+	}
+
+	@Test
+	public void shouldParseSuffixRange() throws Exception {
+		List<ByteRange> ranges = ByteRange.parse("bytes=-50", 1000);
+		Assert.assertEquals(ranges.size(), 1);
+		Assert.assertEquals(ranges.get(0).toContentRange(1000), "bytes 950-999/1000");
+
+		ranges = ByteRange.parse("bytes=-5000", 1000);
+		Assert.assertEquals(ranges.get(0).toContentRange(1000), "bytes 0-999/1000");
+	}
+
+	@Test
+	public void shouldDiscardUnsatisfiableRanges() throws Exception {
+		List<ByteRange> ranges = ByteRange.parse("bytes=0-9, 1000-1999", 1000);
+		Assert.assertEquals(ranges.size(), 1);
+
+		Assert.assertTrue(ByteRange.parse("bytes=1000-", 1000).isEmpty());
+		Assert.assertTrue(ByteRange.parse("bytes=-10", 0).isEmpty());
+	}
+
+	@Test
+	public void shouldIgnoreInvalidRanges() throws Exception {
+		Assert.assertNull(ByteRange.parse("items=0-9", 1000));
+		Assert.assertNull(ByteRange.parse("bytes=9-0", 1000));
+		Assert.assertNull(ByteRange.parse("bytes=a-9", 1000));
+		Assert.assertNull(ByteRange.parse("bytes=10", 1000));
+		Assert.assertNull(ByteRange.parse("bytes=0-10, 5-20", 1000));
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.elibom.jogger.middleware.statik;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import com.elibom.jogger.asset.Asset;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CompressedAssetCacheTest {
+
+	@Test
+	public void shouldCompressAsset() throws Exception {
+		CompressedAssetCache cache = new CompressedAssetCache();
+
+		Asset asset = cache.get("test.css", asset(repeated(1000)));
+		Assert.assertEquals(asset.getContentEncoding(), "gzip");
+		Assert.assertTrue(cache.getSize() > CompressedAssetCache.ENTRY_OVERHEAD);
+	}
+
+	@Test
+	public void shouldEvictEntriesOfAssetsNotWorthCompressing() throws Exception {
+		long maxSize = 10 * CompressedAssetCache.ENTRY_OVERHEAD;
+		CompressedAssetCache cache = new CompressedAssetCache(maxSize);
+
+		// random content doesn't get smaller when compressed
+		for (int i=0; i < 100; i++) {
+			Asset asset = cache.get("test" + i + ".css", asset(random(1000)));
+			Assert.assertNull(asset.getContentEncoding());
+		}
+
+		Assert.assertTrue(cache.getSize() <= maxSize);
+		Assert.assertEquals(cache.getEntryCount(), 10);
+	}
+
+	private Asset asset(byte[] content) {
+		return new Asset(new ByteArrayInputStream(content), "test.css", "text/css", content.length, 1000);
+	}
+
+	private byte[] repeated(int length) {
+		byte[] content = new byte[length];
+		for (int i=0; i < length; i++) {
+			content[i] = (byte) ('a' + (i % 3));
+		}
+		return content;
+	}
+
+	private byte[] random(int length) {
+		byte[] content = new byte[length];
+		new Random(1).nextBytes(content);
+		return content;
+	}
+
+}
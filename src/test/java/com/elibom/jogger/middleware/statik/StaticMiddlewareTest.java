@@ -6,15 +6,32 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
 
+import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
+
+import com.elibom.jogger.Jogger;
 import com.elibom.jogger.MiddlewareChain;
 import com.elibom.jogger.asset.Asset;
 import com.elibom.jogger.asset.AssetLoader;
+import com.elibom.jogger.asset.AssetManifest;
+import com.elibom.jogger.asset.FileAssetLoader;
+import com.elibom.jogger.asset.MappedAssetLoader;
 import com.elibom.jogger.http.Request;
 import com.elibom.jogger.http.Response;
 import com.elibom.jogger.middleware.statik.StaticMiddleware;
+import com.elibom.jogger.template.TemplateEngine;
+import com.elibom.jogger.test.MockResponse;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 public class StaticMiddlewareTest {
@@ -140,4 +157,528 @@ public class StaticMiddlewareTest {
 		verify(assetLoader).load("test.css");
 		verify(response).write(asset);
 	}
+
+	@Test
+	public void shouldReturnSingleRange() throws Exception {
+		Asset asset = new Asset(new ByteArrayInputStream("0123456789".getBytes()), "test.txt", "text/plain", 10);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.txt")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Request request = mockRequest("get", "/assets/test.txt");
+		when(request.getHeader("Range")).thenReturn("bytes=2-5");
+
+		MockResponse response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		Assert.assertEquals(response.getStatus(), Response.PARTIAL_CONTENT);
+		Assert.assertEquals(response.getHeader("Content-Range"), "bytes 2-5/10");
+		Assert.assertEquals(response.getRenderedAsset().getLength(), 4);
+		Assert.assertEquals(read(response.getRenderedAsset()), "2345");
+	}
+
+	@Test
+	public void shouldReturnSingleRangeOfFile() throws Exception {
+		FileAssetLoader assetLoader = new FileAssetLoader("src/test/resources/assets");
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Request request = mockRequest("get", "/assets/asset.css");
+		when(request.getHeader("Range")).thenReturn("bytes=-4");
+
+		MockResponse response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		String content = read(assetLoader.load("asset.css"));
+		Assert.assertEquals(response.getStatus(), Response.PARTIAL_CONTENT);
+		Assert.assertEquals(read(response.getRenderedAsset()), content.substring(content.length() - 4));
+	}
+
+	@Test
+	public void shouldReturnMultipleRanges() throws Exception {
+		Asset asset = new Asset(new ByteArrayInputStream("0123456789".getBytes()), "test.txt", "text/plain", 10);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.txt")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Request request = mockRequest("get", "/assets/test.txt");
+		when(request.getHeader("Range")).thenReturn("bytes=0-1, 7-");
+
+		MockResponse response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		Assert.assertEquals(response.getStatus(), Response.PARTIAL_CONTENT);
+
+		Asset body = response.getRenderedAsset();
+		Assert.assertTrue(body.getContentType().startsWith("multipart/byteranges; boundary="));
+		String boundary = body.getContentType().substring("multipart/byteranges; boundary=".length());
+
+		String expected = "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/10\r\n\r\n01"
+				+ "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 7-9/10\r\n\r\n789"
+				+ "\r\n--" + boundary + "--\r\n";
+		Assert.assertEquals(read(body), expected);
+		Assert.assertEquals(body.getLength(), expected.length());
+	}
+
+	@Test
+	public void shouldReturnNotSatisfiableRange() throws Exception {
+		Asset asset = new Asset(null, "test.css", "text/css", 34);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.css")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Request request = mockRequest("get", "/assets/test.css");
+		when(request.getHeader("Range")).thenReturn("bytes=50-");
+
+		Response response = mock(Response.class);
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		verify(response).status(Response.REQUESTED_RANGE_NOT_SATISFIABLE);
+		verify(response).setHeader("Content-Range", "bytes */34");
+		verify(response, never()).write(any(Asset.class));
+	}
+
+	@Test
+	public void shouldIgnoreRangeIfAssetWasModified() throws Exception {
+		String dateString = "Wed, 09 Apr 2008 23:55:38 GMT";
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		Date d = format.parse(dateString);
+
+		Asset asset = new Asset(null, "test.css", "text/css", 34, d.getTime() + 5000);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.css")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Request request = mockRequest("get", "/assets/test.css");
+		when(request.getHeader("Range")).thenReturn("bytes=0-9");
+		when(request.getHeader("If-Range")).thenReturn(dateString);
+
+		Response response = mock(Response.class);
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		verify(response).status(Response.OK);
+		verify(response).write(asset);
+	}
+
+	@Test
+	public void shouldReturnPrecompressedAsset() throws Exception {
+		Asset asset = new Asset(null, "app.js", "application/javascript", 3400, 1000);
+		Asset gzipped = new Asset(null, "app.js.gz", "application/gzip", 900, 2000);
+
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("app.js")).thenReturn(asset);
+		when(assetLoader.load("app.js.gz")).thenReturn(gzipped);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Request request = mockRequest("get", "/assets/app.js");
+		when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate, br;q=0");
+
+		MockResponse response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		verify(assetLoader, never()).load("app.js.br");
+
+		Asset rendered = response.getRenderedAsset();
+		Assert.assertEquals(rendered.getName(), "app.js");
+		Assert.assertEquals(rendered.getContentType(), "application/javascript");
+		Assert.assertEquals(rendered.getContentEncoding(), "gzip");
+		Assert.assertEquals(rendered.getLength(), 900);
+		Assert.assertEquals(response.getHeader("Vary"), "Accept-Encoding");
+	}
+
+	@Test
+	public void shouldCompressAsset() throws Exception {
+		StringBuilder content = new StringBuilder();
+		for (int i=0; i < 100; i++) {
+			content.append("body { color: red; }\n");
+		}
+		final byte[] bytes = content.toString().getBytes("UTF-8");
+
+		AssetLoader assetLoader = new AssetLoader() {
+			@Override
+			public Asset load(String uri) {
+				if (!uri.equals("test.css")) {
+					return null;
+				}
+				return new Asset(new ByteArrayInputStream(bytes), "test.css", "text/css", bytes.length, 1000);
+			}
+		};
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		for (int i=0; i < 2; i++) {
+			Request request = mockRequest("get", "/assets/test.css");
+			when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+			MockResponse response = new MockResponse(mock(TemplateEngine.class));
+			middleware.handle(request, response, mock(MiddlewareChain.class));
+
+			Asset rendered = response.getRenderedAsset();
+			Assert.assertEquals(rendered.getContentEncoding(), "gzip");
+			Assert.assertTrue(rendered.getLength() < bytes.length);
+			Assert.assertEquals(response.getHeader("Vary"), "Accept-Encoding");
+
+			Asset decompressed = new Asset(new GZIPInputStream(rendered.getInputStream()), null, null, -1);
+			Assert.assertEquals(read(decompressed), content.toString());
+		}
+	}
+
+	@Test
+	public void shouldNotCompressAssetIfNotAccepted() throws Exception {
+		Asset asset = new Asset(null, "test.css", "text/css", 3400);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.css")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Request request = mockRequest("get", "/assets/test.css");
+		when(request.getHeader("Accept-Encoding")).thenReturn("identity, gzip;q=0");
+
+		Response response = mock(Response.class);
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		verify(response).setHeader("Vary", "Accept-Encoding");
+		verify(response).write(asset);
+	}
+
+	@Test
+	public void shouldParseAcceptEncoding() throws Exception {
+		Assert.assertTrue(StaticMiddleware.acceptsEncoding("gzip, deflate", "gzip"));
+		Assert.assertTrue(StaticMiddleware.acceptsEncoding("x-gzip", "gzip"));
+		Assert.assertTrue(StaticMiddleware.acceptsEncoding("*", "br"));
+		Assert.assertFalse(StaticMiddleware.acceptsEncoding("*, br;q=0", "br"));
+		Assert.assertFalse(StaticMiddleware.acceptsEncoding("gzip;q=0.0", "gzip"));
+		Assert.assertFalse(StaticMiddleware.acceptsEncoding("deflate", "gzip"));
+	}
+
+	@Test
+	public void should304IgnoringMillisecondsOfLastModified() throws Exception {
+		String dateString = "Wed, 09 Apr 2008 23:55:38 GMT";
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		Date d = format.parse(dateString);
+
+		Asset asset = new Asset(null, "test.css", "text/css", 34, d.getTime() + 999);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.css")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Request request = mockRequest("get", "/assets/test.css");
+		when(request.getHeader("If-Modified-Since")).thenReturn(dateString);
+
+		Response response = mock(Response.class);
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		verify(response).status(Response.NOT_MODIFIED);
+		verify(response, never()).write(any(Asset.class));
+	}
+
+	@Test
+	public void shouldSendLastModifiedAndETag() throws Exception {
+		Asset asset = new Asset(null, "test.css", "text/css", 34, 1207785338000L);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.css")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		MockResponse response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(mockRequest("get", "/assets/test.css"), response, mock(MiddlewareChain.class));
+
+		Assert.assertEquals(response.getStatus(), Response.OK);
+		Assert.assertEquals(response.getHeader("Last-Modified"), "Wed, 09 Apr 2008 23:55:38 GMT");
+		Assert.assertEquals(response.getHeader("ETag"), "\"" + Long.toHexString(1207785338000L) + "-22\"");
+	}
+
+	@Test
+	public void should304WithMatchingIfNoneMatchHeader() throws Exception {
+		Asset asset = new Asset(null, "test.css", "text/css", 34, 1207785338000L);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.css")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+		String etag = "\"" + Long.toHexString(1207785338000L) + "-22\"";
+
+		// the tag of the gzip version also matches
+		Request request = mockRequest("get", "/assets/test.css");
+		when(request.getHeader("If-None-Match")).thenReturn("\"other\", W/" + etag.replace("-22", "-22-gzip"));
+
+		MockResponse response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		Assert.assertEquals(response.getStatus(), Response.NOT_MODIFIED);
+		Assert.assertEquals(response.getHeader("ETag"), etag.replace("-22", "-22-gzip"));
+		Assert.assertNull(response.getRenderedAsset());
+
+		// If-Modified-Since is ignored when If-None-Match is present
+		request = mockRequest("get", "/assets/test.css");
+		when(request.getHeader("If-None-Match")).thenReturn("\"other\"");
+		when(request.getHeader("If-Modified-Since")).thenReturn("Wed, 09 Apr 2008 23:55:38 GMT");
+
+		response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		Assert.assertEquals(response.getStatus(), Response.OK);
+		Assert.assertEquals(response.getRenderedAsset(), asset);
+	}
+
+	@Test
+	public void shouldSendCacheControlOfFirstMatchingPolicy() throws Exception {
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("index.html")).thenReturn(new Asset(null, "index.html", "text/html", 34));
+		when(assetLoader.load("css/test.css")).thenReturn(new Asset(null, "test.css", "text/css", 34));
+		when(assetLoader.load("test.png")).thenReturn(new Asset(null, "test.png", "image/png", 34));
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+		middleware.addCacheControl("no-cache", "/index.html");
+		middleware.addCacheControl("public, max-age=3600", "/css/*", "*.js");
+
+		MockResponse response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(mockRequest("get", "/assets/index.html"), response, mock(MiddlewareChain.class));
+		Assert.assertEquals(response.getHeader("Cache-Control"), "no-cache");
+
+		response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(mockRequest("get", "/assets/css/test.css"), response, mock(MiddlewareChain.class));
+		Assert.assertEquals(response.getHeader("Cache-Control"), "public, max-age=3600");
+
+		response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(mockRequest("get", "/assets/test.png"), response, mock(MiddlewareChain.class));
+		Assert.assertNull(response.getHeader("Cache-Control"));
+	}
+
+	@Test
+	public void shouldServeFingerprintedAsset() throws Exception {
+		File directory = new File("src/test/resources/assets");
+		AssetManifest manifest = new AssetManifest(directory);
+		String fingerprintedPath = manifest.getFingerprintedPath("asset.css");
+
+		StaticMiddleware middleware = new StaticMiddleware(new FileAssetLoader(directory), "assets");
+		middleware.addCacheControl("no-cache");
+		middleware.setManifest(manifest);
+
+		MockResponse response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(mockRequest("get", "/assets/" + fingerprintedPath), response, mock(MiddlewareChain.class));
+
+		Assert.assertEquals(response.getStatus(), Response.OK);
+		Assert.assertEquals(response.getRenderedAsset().getName(), "asset.css");
+		Assert.assertEquals(response.getHeader("Cache-Control"), "public, max-age=31536000, immutable");
+
+		// the original path is still served, with the policies
+		response = new MockResponse(mock(TemplateEngine.class));
+		middleware.handle(mockRequest("get", "/assets/asset.css"), response, mock(MiddlewareChain.class));
+
+		Assert.assertEquals(response.getStatus(), Response.OK);
+		Assert.assertEquals(response.getHeader("Cache-Control"), "no-cache");
+	}
+
+	@Test
+	public void shouldCloseAssetWhenNotModified() throws Exception {
+		CloseTrackingInputStream inputStream = new CloseTrackingInputStream("0123456789".getBytes());
+		Asset asset = new Asset(inputStream, "test.txt", "text/plain", 10, 1396828800000L);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.txt")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Request request = mockRequest("get", "/assets/test.txt");
+		when(request.getHeader("If-Modified-Since")).thenReturn("Mon, 07 Apr 2014 00:00:00 GMT");
+
+		Response response = mock(Response.class);
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		verify(response).status(Response.NOT_MODIFIED);
+		Assert.assertTrue(inputStream.closed);
+	}
+
+	@Test
+	public void shouldCloseAssetWhenRangeNotSatisfiable() throws Exception {
+		CloseTrackingInputStream inputStream = new CloseTrackingInputStream("0123456789".getBytes());
+		Asset asset = new Asset(inputStream, "test.txt", "text/plain", 10);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.txt")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Request request = mockRequest("get", "/assets/test.txt");
+		when(request.getHeader("Range")).thenReturn("bytes=50-");
+
+		Response response = mock(Response.class);
+		middleware.handle(request, response, mock(MiddlewareChain.class));
+
+		verify(response).status(Response.REQUESTED_RANGE_NOT_SATISFIABLE);
+		Assert.assertTrue(inputStream.closed);
+	}
+
+	@Test
+	public void shouldNotCloseWrittenAsset() throws Exception {
+		CloseTrackingInputStream inputStream = new CloseTrackingInputStream("0123456789".getBytes());
+		Asset asset = new Asset(inputStream, "test.txt", "text/plain", 10);
+		AssetLoader assetLoader = mock(AssetLoader.class);
+		when(assetLoader.load("test.txt")).thenReturn(asset);
+
+		StaticMiddleware middleware = new StaticMiddleware(assetLoader, "assets");
+
+		Response response = mock(Response.class);
+		middleware.handle(mockRequest("get", "/assets/test.txt"), response, mock(MiddlewareChain.class));
+
+		verify(response).write(asset);
+		Assert.assertFalse(inputStream.closed);
+	}
+
+	private static class CloseTrackingInputStream extends ByteArrayInputStream {
+
+		private boolean closed = false;
+
+		public CloseTrackingInputStream(byte[] bytes) {
+			super(bytes);
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+
+	}
+
+	@Test
+	public void shouldServeFilesThroughServer() throws Exception {
+		File directory = createAssetsDirectory();
+		Jogger app = new Jogger(new StaticMiddleware(new FileAssetLoader(directory), "assets"));
+		app.listen(27773);
+
+		try {
+			assertServed("small.txt", "this is a small file".getBytes("UTF-8"));
+			assertServed("large.bin", largeContent());
+			assertServedRange("large.bin", "bytes=100000-100009", 100000, 10);
+		} finally {
+			app.stop();
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	public void shouldServeMappedFilesThroughServer() throws Exception {
+		File directory = createAssetsDirectory();
+		MappedAssetLoader assetLoader = new MappedAssetLoader(new FileAssetLoader(directory), 1024);
+		Jogger app = new Jogger(new StaticMiddleware(assetLoader, "assets"));
+		app.listen(27773);
+
+		try {
+			assertServed("small.txt", "this is a small file".getBytes("UTF-8"));
+			assertServed("large.bin", largeContent());
+			assertServedRange("large.bin", "bytes=100000-100009", 100000, 10);
+			Assert.assertEquals(assetLoader.getMappedCount(), 1);
+		} finally {
+			app.stop();
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	public void shouldMapLargeFilesOfDirectory() throws Exception {
+		File directory = createAssetsDirectory();
+
+		StaticMiddleware middleware;
+		String env = System.getProperty("JOGGER_ENV");
+		System.setProperty("JOGGER_ENV", "prod");
+		try {
+			middleware = new StaticMiddleware(directory.getAbsolutePath(), "assets");
+		} finally {
+			if (env == null) {
+				System.clearProperty("JOGGER_ENV");
+			} else {
+				System.setProperty("JOGGER_ENV", env);
+			}
+		}
+		Assert.assertTrue(middleware.getAssetLoader() instanceof MappedAssetLoader);
+
+		Jogger app = new Jogger(middleware);
+		app.listen(27773);
+
+		try {
+			assertServed("small.txt", "this is a small file".getBytes("UTF-8"));
+			assertServed("large.bin", largeContent());
+			assertServedRange("large.bin", "bytes=100000-100009", 100000, 10);
+			Assert.assertEquals(((MappedAssetLoader) middleware.getAssetLoader()).getMappedCount(), 1);
+		} finally {
+			app.stop();
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	public void shouldNotMapFilesOfDirectoryInDevelopment() throws Exception {
+		StaticMiddleware middleware = new StaticMiddleware("assets");
+		Assert.assertTrue(middleware.getAssetLoader() instanceof FileAssetLoader);
+	}
+
+	private void assertServed(String fileName, byte[] expected) throws Exception {
+		HttpResponse response = org.apache.http.client.fluent.Request.Get("http://localhost:27773/assets/" + fileName)
+				.execute().returnResponse();
+		Assert.assertEquals(response.getStatusLine().getStatusCode(), Response.OK);
+		Assert.assertEquals(EntityUtils.toByteArray(response.getEntity()), expected);
+	}
+
+	private void assertServedRange(String fileName, String range, int offset, int length) throws Exception {
+		HttpResponse response = org.apache.http.client.fluent.Request.Get("http://localhost:27773/assets/" + fileName)
+				.addHeader("Range", range).execute().returnResponse();
+		Assert.assertEquals(response.getStatusLine().getStatusCode(), Response.PARTIAL_CONTENT);
+
+		byte[] expected = new byte[length];
+		System.arraycopy(largeContent(), offset, expected, 0, length);
+		Assert.assertEquals(EntityUtils.toByteArray(response.getEntity()), expected);
+	}
+
+	private File createAssetsDirectory() throws Exception {
+		File directory = File.createTempFile("jogger-assets", "");
+		directory.delete();
+		directory.mkdir();
+
+		write(new File(directory, "small.txt"), "this is a small file".getBytes("UTF-8"));
+		write(new File(directory, "large.bin"), largeContent());
+
+		return directory;
+	}
+
+	private byte[] largeContent() {
+		byte[] content = new byte[200 * 1024];
+		for (int i=0; i < content.length; i++) {
+			content[i] = (byte) (i % 251);
+		}
+		return content;
+	}
+
+	private void write(File file, byte[] content) throws Exception {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void deleteDirectory(File directory) {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private String read(Asset asset) throws Exception {
+		InputStream inputStream = asset.getInputStream();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[3];
+			int length;
+			while ((length = inputStream.read(buffer)) != -1) {
+				out.write(buffer, 0, length);
+			}
+			return out.toString("ISO-8859-1");
+		} finally {
+			inputStream.close();
+		}
+	}
 }